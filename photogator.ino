@@ -24,11 +24,18 @@ public:
 	}
 };
 
-const uint8_t k_startInterruptPin = 2;	// assign interrupt pin for start
-const uint8_t k_stopInterruptPin = 3;		// assign interrupt pin for stop
+// Sensor pins, each of which must support external interrupts.  An Uno has
+// only pins 2 and 3; a Mega also has 18, 19, 20, and 21.  The host maps pins
+// to course positions (see the "sensors" setting), so the order here does not
+// matter.
+const uint8_t k_sensorPins[] = { 2, 3 };
+const uint8_t k_numSensors = sizeof(k_sensorPins) / sizeof(k_sensorPins[0]);
+const uint8_t k_maxSensors = 6;				// # external interrupt pins on a Mega
+static_assert(k_numSensors <= k_maxSensors, "More sensor pins than external interrupts");
 const uint8_t k_groundPin = 4;				// ground pin for the interrupt filtering capacitor
-const char*const k_pHeartbeatMsg = "HeartBeat";
+const char*const k_pHeartbeatMsgPrefix = "HeartBeat:";
 const char*const k_pEventMsgPrefix = "BeamBroken:";
+const char*const k_pOverflowMsgPrefix = "Overflow:";
 const char*const k_pSeparator = ",";
 const uint8_t k_maxUnsignedLongStrLen = 10;	// # digits in 2^32
 const uint8_t k_maxEventMsgLen =
@@ -36,11 +43,34 @@ const uint8_t k_maxEventMsgLen =
 	+ 3 * k_maxUnsignedLongStrLen	// space for the numbers
 	+ 2									// space for the comma separators
 	+ 1;									// space for the null terminator
+const uint8_t k_maxHeartbeatMsgLen =
+	10										// # chars in k_pHeartbeatMsgPrefix
+	+ k_maxUnsignedLongStrLen		// space for the time
+	+ 1;									// space for the null terminator
+const uint8_t k_maxOverflowMsgLen =
+	9										// # chars in k_pOverflowMsgPrefix
+	+ k_maxUnsignedLongStrLen		// space for the count
+	+ 1;									// space for the null terminator
 
-volatile bool g_newEvent = false;			// Have we seen a new interrupt event?
-volatile uint8_t g_eventPin = 0;				// pin  of interrupt event
-volatile unsigned long g_eventTime = 0;	// time of interrupt event
-volatile unsigned long g_eventSeqNum = 0;	// sequence number of interrupt event
+// Events captured by the interrupt handlers and not yet sent.  Sending one
+// event message takes about 4 ms at 57600 baud, so gate crossings that come
+// faster than that queue up here rather than overwriting each other.  The
+// capacity must be a power of two.
+struct Event
+{
+	uint8_t pin;
+	unsigned long time;
+	unsigned long seqNum;
+};
+const uint8_t k_eventQueueCapacity = 16;
+const uint8_t k_eventQueueMask = k_eventQueueCapacity - 1;
+
+volatile Event g_eventQueue[k_eventQueueCapacity];
+volatile uint8_t g_eventQueueHead = 0;		// next event to send, written by loop()
+volatile uint8_t g_eventQueueTail = 0;		// next free slot, written by the interrupt handlers
+volatile unsigned long g_eventSeqNum = 0;	// sequence number of the latest interrupt event
+volatile unsigned long g_overflowCount = 0;	// # events lost because the queue was full
+unsigned long g_reportedOverflowCount = 0;	// overflow count last sent to the host
 unsigned long g_lastHearbeat = 0;			// time last heartbeat message was sent
 
 // Attaches interrupt handler to run on falling edge of input signal
@@ -48,19 +78,44 @@ static void attachInterruptFalling(uint8_t pin, void (*handler)()) {
 	attachInterrupt(digitalPinToInterrupt(pin), handler, FALLING);
 }
 
+// Interrupts are already disabled within an interrupt handler.  A lost event
+// still consumes a sequence number, so the host sees the gap.
 static void trigger(uint8_t pin) {
-	g_newEvent = true;
-	g_eventPin = pin;
-	g_eventTime = millis();
 	++g_eventSeqNum;
+	uint8_t tail = g_eventQueueTail;
+	if (uint8_t(tail - g_eventQueueHead) >= k_eventQueueCapacity)
+	{
+		++g_overflowCount;
+		return;
+	}
+	volatile Event& event = g_eventQueue[tail & k_eventQueueMask];
+	event.pin = pin;
+	event.time = millis();
+	event.seqNum = g_eventSeqNum;
+	g_eventQueueTail = tail + 1;
 }
 
-static void startTrigger() {
-	trigger(k_startInterruptPin);
+// An interrupt handler takes no arguments, so stamp out one per sensor:
+template <uint8_t k_sensorIndex>
+static void sensorTrigger() {
+	static_assert(k_sensorIndex < k_numSensors, "Sensor index out of range");
+	trigger(k_sensorPins[k_sensorIndex]);
 }
 
-static void stopTrigger() {
-	trigger(k_stopInterruptPin);
+// Attaches the handlers for sensors k_sensorIndex and up.  Recursing at compile
+// time instantiates sensorTrigger only for the pins in k_sensorPins.
+template <uint8_t k_sensorIndex>
+static void attachSensorTriggers();
+
+template <>
+void attachSensorTriggers<k_numSensors>() {
+}
+
+template <uint8_t k_sensorIndex>
+static void attachSensorTriggers() {
+	pinMode(k_sensorPins[k_sensorIndex], INPUT_PULLUP);
+	attachInterruptFalling(k_sensorPins[k_sensorIndex], sensorTrigger<k_sensorIndex>);
+	attachSensorTriggers<k_sensorIndex + 1>();
 }
 
 void setup() {
@@ -74,10 +129,7 @@ void setup() {
 	digitalWrite(k_groundPin, LOW);
 
 	// Set up the interrupt handlers:
-	pinMode(k_startInterruptPin, INPUT_PULLUP);
-	attachInterruptFalling(k_startInterruptPin, startTrigger);
-	pinMode(k_stopInterruptPin, INPUT_PULLUP);
-	attachInterruptFalling(k_stopInterruptPin, stopTrigger);
+	attachSensorTriggers<0>();
 }
 
 static void sendEventMessage(uint8_t eventPin, unsigned long eventTime, unsigned long eventSeqNum)
@@ -108,6 +160,42 @@ static void sendEventMessage(uint8_t eventPin, unsigned long eventTime, unsigned
 	Serial.write(msg, strlen(msg) + 1);
 }
 
+// The time lets the host synchronize its clock with millis():
+static void sendHeartbeatMessage(unsigned long now)
+{
+	char msg[k_maxHeartbeatMsgLen];
+	strcpy(msg, k_pHeartbeatMsgPrefix);
+	ultoa(now, msg + strlen(msg), 10);
+	Serial.write(msg, strlen(msg) + 1);
+}
+
+// The count is cumulative, so a lost message is made up for by the next one:
+static void sendOverflowMessage(unsigned long overflowCount)
+{
+	char msg[k_maxOverflowMsgLen];
+	strcpy(msg, k_pOverflowMsgPrefix);
+	ultoa(overflowCount, msg + strlen(msg), 10);
+	Serial.write(msg, strlen(msg) + 1);
+}
+
+// Copies the oldest pending event into event.  Returns false if there is none.
+static bool dequeueEvent(Event& event, unsigned long& overflowCount)
+{
+	CriticalSection cs;
+	overflowCount = g_overflowCount;
+	uint8_t head = g_eventQueueHead;
+	if (head == g_eventQueueTail)
+	{
+		return false;
+	}
+	volatile Event& pending = g_eventQueue[head & k_eventQueueMask];
+	event.pin = pending.pin;
+	event.time = pending.time;
+	event.seqNum = pending.seqNum;
+	g_eventQueueHead = head + 1;
+	return true;
+}
+
 static uint8_t toggleBuiltinLedState()
 {
 	static uint8_t g_builtinLedState = LOW;
@@ -116,23 +204,25 @@ static uint8_t toggleBuiltinLedState()
 }
 
 void loop() {
-	CriticalSection::enter();
-	auto newEvent = g_newEvent;
-	auto eventPin = g_eventPin;
-	auto eventTime = g_eventTime;
-	auto eventSeqNum = g_eventSeqNum;
-	g_newEvent = false;
-	CriticalSection::exit();
-
-	if (newEvent)
+	// Send every pending event, outside the critical section:
+	Event event;
+	unsigned long overflowCount = 0;
+	while (dequeueEvent(event, overflowCount))
+	{
+		sendEventMessage(event.pin, event.time, event.seqNum);
+	}
+
+	if (overflowCount != g_reportedOverflowCount)
 	{
-		sendEventMessage(eventPin, eventTime, eventSeqNum);
+		sendOverflowMessage(overflowCount);
+		g_reportedOverflowCount = overflowCount;
 	}
 
-	if (millis() - g_lastHearbeat > 1000)
+	unsigned long now = millis();
+	if (now - g_lastHearbeat > 1000)
 	{
-		Serial.write(k_pHeartbeatMsg, strlen(k_pHeartbeatMsg) + 1);
+		sendHeartbeatMessage(now);
 		digitalWrite(LED_BUILTIN, toggleBuiltinLedState());
-		g_lastHearbeat = millis();
+		g_lastHearbeat = now;
 	}
 }
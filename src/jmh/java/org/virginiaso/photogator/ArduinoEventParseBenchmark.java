@@ -0,0 +1,57 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.HeartBeatEvent;
+
+/*
+ * ArduinoEvent.parse over several message mixes, including input that matches
+ * no registered prefix or is malformed after its prefix.  One operation parses
+ * one message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArduinoEventParseBenchmark
+{
+	@Param({ "beamBroken", "heartBeat", "mixed", "unrecognized" })
+	public String mix;
+
+	private String[] msgs;
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		ArduinoEvent.registerMsgType(HeartBeatEvent.MSG_PREFIX, HeartBeatEvent::create);
+		ArduinoEvent.registerMsgType(BeamBrokenEvent.MSG_PREFIX, BeamBrokenEvent::create);
+		msgs = switch (mix)
+		{
+			case "beamBroken" -> new String[] { "BeamBroken:17,2,123456", "BeamBroken:18,3,129876" };
+			case "heartBeat" -> new String[] { "HeartBeat:123456", "HeartBeat:124456" };
+			case "mixed" -> new String[] { "BeamBroken:17,2,123456", "HeartBeat:124456",
+				"BeamBroken:18,3,129876", "beambroken:19,2,130000" };
+			case "unrecognized" -> new String[] { "Garbage line from a noisy cable", "BeamBroken:17,x,123456",
+				"BeamBroken:17,99,123456", "HeartBeat:", "" };
+			default -> throw new IllegalArgumentException(mix);
+		};
+		next = 0;
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole)
+	{
+		blackhole.consume(ArduinoEvent.parse(msgs[next]));
+		next = (next + 1) % msgs.length;
+	}
+}
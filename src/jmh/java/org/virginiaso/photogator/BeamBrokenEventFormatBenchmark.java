@@ -0,0 +1,49 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * The text formatting done for each beam-broken event and each timing result
+ * as they are added to the display.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BeamBrokenEventFormatBenchmark
+{
+	private BeamBrokenEvent startEvt;
+	private BeamBrokenEvent finishEvt;
+
+	@Setup
+	public void setup()
+	{
+		startEvt = new BeamBrokenEvent(17, SensorId.getCourse().getFirst(), 123_456);
+		finishEvt = new BeamBrokenEvent(18, SensorId.getCourse().getLast(), 129_876);
+	}
+
+	@Benchmark
+	public String format()
+	{
+		return finishEvt.format();
+	}
+
+	@Benchmark
+	public String formatMsg()
+	{
+		return finishEvt.formatMsg();
+	}
+
+	@Benchmark
+	public String formatDifference()
+	{
+		return finishEvt.formatDifference(startEvt);
+	}
+}
@@ -0,0 +1,44 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Sensor lookup by pin, as done for every parsed beam-broken message, on the
+ * default two-gate course and on a course with split gates on high pins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SensorIdBenchmark
+{
+	@Param({ SensorId.DEFAULT_LAYOUT_SPEC, "2:Start, 18:Gate 2, 19:Gate 3, 3:Finish" })
+	public String layout;
+
+	private int[] pins;
+	private int next;
+
+	@Setup
+	public void setup()
+	{
+		SensorId.configure(layout);
+		pins = SensorId.getCourse().stream().mapToInt(SensorId::getIdNum).toArray();
+		next = 0;
+	}
+
+	@Benchmark
+	public void getById(Blackhole blackhole)
+	{
+		blackhole.consume(SensorId.getById(pins[next]));
+		next = (next + 1) % pins.length;
+	}
+}
@@ -0,0 +1,91 @@
+package org.virginiaso.photogator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/*
+ * Finding the next session number in a session directory of fileCount saved
+ * sessions:  coldStart scans the directory as at startup, and indexedLookup is
+ * the per-save cost once the index is built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionIndexBenchmark
+{
+	private static final String[] DIVISIONS = { "A", "B", "C" };
+	private static final int TEAM_COUNT = 60;
+	private static final Pattern FILENM_PARSER = Pattern
+		.compile("PhotogatorSession-([ABC])([0-9]+)-([0-9]+)\\.txt", Pattern.CASE_INSENSITIVE);
+
+	@Param({ "100", "5000" })
+	public int fileCount;
+
+	private File sessionDir;
+	private SessionIndex index;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		sessionDir = Files.createTempDirectory("PhotogatorSessionIndexBenchmark").toFile();
+		// i maps one-to-one onto (division, team, session), so every name is distinct:
+		for (int i = 0; i < fileCount; ++i)
+		{
+			String fileName = "PhotogatorSession-%1$s%2$02d-%3$03d.txt".formatted(
+				DIVISIONS[i % DIVISIONS.length], (i / DIVISIONS.length) % TEAM_COUNT,
+				i / (DIVISIONS.length * TEAM_COUNT));
+			Files.writeString(new File(sessionDir, fileName).toPath(), "", StandardOpenOption.CREATE_NEW);
+		}
+		String[] fileNames = sessionDir.list();
+		if (fileNames == null || fileNames.length != fileCount)
+		{
+			throw new IllegalStateException("Expected %1$d session files in '%2$s'".formatted(fileCount, sessionDir));
+		}
+		index = new SessionIndex(sessionDir, FILENM_PARSER);
+		index.start();
+		index.getNextSessionNumber("A", 0);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		index.close();
+		try (Stream<Path> paths = Files.walk(sessionDir.toPath()))
+		{
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public int coldStart()
+	{
+		try (SessionIndex coldIndex = new SessionIndex(sessionDir, FILENM_PARSER))
+		{
+			coldIndex.start();
+			return coldIndex.getNextSessionNumber("B", 7);
+		}
+	}
+
+	@Benchmark
+	public int indexedLookup()
+	{
+		return index.getNextSessionNumber("B", 7);
+	}
+}
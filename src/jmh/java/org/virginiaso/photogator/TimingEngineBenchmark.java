@@ -0,0 +1,73 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Start/finish pairing under each compute method.  One operation is one
+ * complete run:  ready, start, and finish.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimingEngineBenchmark
+{
+	private static final int RUN_COUNT = 1000;
+
+	@Param
+	public ElapsedTimeComputeMethod computeMethod;
+
+	private BeamBrokenEvent[] events;
+	private TimingEngine engine;
+
+	@Setup
+	public void setup(Blackhole blackhole)
+	{
+		SensorId start = SensorId.getCourse().getFirst();
+		SensorId finish = SensorId.getCourse().getLast();
+		events = new BeamBrokenEvent[2 * RUN_COUNT];
+		for (int i = 0; i < RUN_COUNT; ++i)
+		{
+			long startTime = i * 10_000L;
+			events[2 * i] = new BeamBrokenEvent(2L * i + 1, start, startTime);
+			events[2 * i + 1] = new BeamBrokenEvent(2L * i + 2, finish, startTime + 6_543);
+		}
+		engine = new TimingEngine(computeMethod, new TimingListener()
+		{
+			@Override
+			public void onResult(TimingResult result)
+			{
+				blackhole.consume(result);
+			}
+
+			@Override
+			public void onUnmatched(BeamBrokenEvent evt, UnmatchedReason reason)
+			{
+				blackhole.consume(reason);
+			}
+		});
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RUN_COUNT)
+	public void pairRuns()
+	{
+		engine.reset();
+		for (int i = 0; i < events.length; i += 2)
+		{
+			engine.ready();
+			engine.onBeamBroken(events[i]);
+			engine.onBeamBroken(events[i + 1]);
+		}
+	}
+}
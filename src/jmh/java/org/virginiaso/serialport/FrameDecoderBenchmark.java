@@ -0,0 +1,61 @@
+package org.virginiaso.serialport;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * NUL-frame decoding as done for each serial read by BufferingSerialPortListener.
+ * The stream is a realistic mix of heartbeats and beam breaks, delivered in
+ * reads of chunkSize bytes.  One operation decodes the whole stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FrameDecoderBenchmark
+{
+	private static final int MSG_COUNT = 1000;
+
+	@Param({ "1", "16", "256" })
+	public int chunkSize;
+
+	private byte[] stream;
+	private FrameDecoder decoder;
+
+	@Setup
+	public void setup(Blackhole blackhole)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (int i = 1; i <= MSG_COUNT; ++i)
+		{
+			String msg = (i % 4 == 0)
+				? "HeartBeat:" + (i * 250L)
+				: "BeamBroken:" + i + "," + (2 + i % 2) + "," + (i * 250L);
+			bytes.writeBytes(msg.getBytes(StandardCharsets.US_ASCII));
+			bytes.write(0);
+		}
+		stream = bytes.toByteArray();
+		decoder = new FrameDecoder(frame -> blackhole.consume(frame.length()));
+	}
+
+	@Benchmark
+	public long decodeStream()
+	{
+		long arrivalNanoTime = System.nanoTime();
+		for (int offset = 0; offset < stream.length; offset += chunkSize)
+		{
+			decoder.decode(stream, offset, Math.min(chunkSize, stream.length - offset), arrivalNanoTime);
+		}
+		return decoder.getFrameCount();
+	}
+}
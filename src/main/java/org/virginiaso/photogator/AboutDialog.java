@@ -25,10 +25,14 @@ import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.WindowConstants;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import jssc.SerialPortList;
 
 public final class AboutDialog extends JDialog
 {
+	private static final Logger LOG = LoggerFactory.getLogger(AboutDialog.class);
 	private static final long serialVersionUID = 1L;
 	private static final String DIALOG_TITLE = "About %1$s";
 	private static final String ABOUT_MSG_CONTENT_RSRC = "AboutMessage.html";
@@ -125,7 +129,7 @@ public final class AboutDialog extends JDialog
 		}
 		catch (IOException ex)
 		{
-			ex.printStackTrace(Photogator.ERR_LOG);
+			LOG.error("Unable to show the About message", ex);
 		}
 	}
 
@@ -1,26 +1,43 @@
 package org.virginiaso.photogator;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import org.virginiaso.serialport.ArduinoEvent;
 
 public class BeamBrokenEvent extends ArduinoEvent
 {
-	public static final Pattern MSG_PATTERN = Pattern.compile(
-		"^BeamBroken:([0-9]+),([0-9]+),([0-9]+)$", Pattern.CASE_INSENSITIVE);
+	public static final String MSG_PREFIX = "BeamBroken:";
 	private static final String MSG_FMT = "%1$3d. (%2$s) %3$s at %4$8d ms%n";
 	private static final String DIFFERENCE_FMT = "%n   %1$7.2f seconds (#%2$d to #%3$d)%n%n";
+	private static final String SPLIT_FMT = "   %1$7.2f s split, %2$s to %3$s (#%4$d to #%5$d)%n";
+	private static final String UNMATCHED_FMT = "   Unmatched #%1$d: %2$s%n";
 
 	private final long seqNum;
 	private final SensorId sensorId;
 	private final long arduinoTime;
 
-	public BeamBrokenEvent(Matcher msgMatcher)
+	// Parses "<seqNum>,<pin>,<arduinoTime>" without regular expressions
+	public static BeamBrokenEvent create(CharSequence msg, int fieldsStart)
+	{
+		int firstComma = indexOf(msg, ',', fieldsStart);
+		int secondComma = (firstComma < 0) ? -1 : indexOf(msg, ',', firstComma + 1);
+		if (secondComma < 0)
+		{
+			return null;
+		}
+
+		long seqNum = parseUnsignedDecimal(msg, fieldsStart, firstComma);
+		long sensorIdNum = parseUnsignedDecimal(msg, firstComma + 1, secondComma);
+		long arduinoTime = parseUnsignedDecimal(msg, secondComma + 1, msg.length());
+		SensorId sensorId = SensorId.findById(sensorIdNum);
+		return (seqNum < 0 || sensorId == null || arduinoTime < 0)
+			? null
+			: new BeamBrokenEvent(seqNum, sensorId, arduinoTime);
+	}
+
+	public BeamBrokenEvent(long seqNum, SensorId sensorId, long arduinoTime)
 	{
-		seqNum = Long.parseLong(msgMatcher.group(1));
-		sensorId = SensorId.getById(Long.parseLong(msgMatcher.group(2)));
-		arduinoTime = Long.parseLong(msgMatcher.group(3));
+		this.seqNum = seqNum;
+		this.sensorId = sensorId;
+		this.arduinoTime = arduinoTime;
 	}
 
 	@Override
@@ -29,12 +46,41 @@ public class BeamBrokenEvent extends ArduinoEvent
 		return MSG_FMT.formatted(seqNum, formatWallClockTime(), sensorId.getName(), arduinoTime);
 	}
 
+	@Override
+	public String formatMsg()
+	{
+		return MSG_PREFIX + seqNum + "," + sensorId.getIdNum() + "," + arduinoTime;
+	}
+
 	public String formatDifference(BeamBrokenEvent lastEvent)
 	{
-		double elapsedSeconds = (arduinoTime - lastEvent.arduinoTime) / 1000.0;
+		double elapsedSeconds = (getTimelineTime() - lastEvent.getTimelineTime()) / 1000.0;
 		return DIFFERENCE_FMT.formatted(elapsedSeconds, lastEvent.seqNum, seqNum);
 	}
 
+	public String formatSplit(BeamBrokenEvent previousEvent)
+	{
+		double splitSeconds = (getTimelineTime() - previousEvent.getTimelineTime()) / 1000.0;
+		return SPLIT_FMT.formatted(splitSeconds, previousEvent.sensorId.getUnpaddedName(),
+			sensorId.getUnpaddedName(), previousEvent.seqNum, seqNum);
+	}
+
+	public String formatUnmatched(TimingListener.UnmatchedReason reason)
+	{
+		return UNMATCHED_FMT.formatted(seqNum, reason.getDescription());
+	}
+
+	public long getSeqNum()
+	{
+		return seqNum;
+	}
+
+	@Override
+	public long getArduinoTime()
+	{
+		return arduinoTime;
+	}
+
 	public SensorId getSensorId()
 	{
 		return sensorId;
@@ -0,0 +1,42 @@
+package org.virginiaso.photogator;
+
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+
+public final class ConsecutiveStartEndPairStrategy implements TimingStrategy
+{
+	private final RunInProgress run = new RunInProgress();
+
+	@Override
+	public void onBeamBroken(BeamBrokenEvent evt, TimingListener listener)
+	{
+		if (evt.getSensorId().isStart())
+		{
+			run.start(evt);
+		}
+		else if (run.accepts(evt))
+		{
+			run.record(evt, listener);
+			if (evt.getSensorId().isFinish())
+			{
+				listener.onResult(run.toResult());
+				run.clear();
+			}
+		}
+	}
+
+	@Override
+	public void ready()
+	{
+		// The Ready button does not apply to this strategy
+	}
+
+	@Override
+	public void abandonRuns(TimingListener listener, UnmatchedReason reason)
+	{
+		if (run.isStarted())
+		{
+			listener.onUnmatched(run.getStartEvent(), reason);
+			run.clear();
+		}
+	}
+}
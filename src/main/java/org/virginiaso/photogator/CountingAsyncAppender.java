@@ -0,0 +1,52 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/*
+ * Logback's AsyncAppender configured with neverBlock discards events rather
+ * than stall the logging thread, but does not say how many.  This subclass
+ * counts them: events discarded because the queue crossed the discarding
+ * threshold, and (approximately, since the check races with the worker)
+ * events dropped because the queue was completely full.
+ */
+public final class CountingAsyncAppender extends AsyncAppender
+{
+	private static final LongAdder DISCARDED_COUNT = new LongAdder();
+	private static final LongAdder OVERFLOW_COUNT = new LongAdder();
+
+	@Override
+	protected void append(ILoggingEvent evt)
+	{
+		if (isNeverBlock() && getRemainingCapacity() == 0
+			&& (getDiscardingThreshold() == 0 || !super.isDiscardable(evt)))
+		{
+			OVERFLOW_COUNT.increment();
+		}
+		super.append(evt);
+	}
+
+	// Called only when the queue is below the discarding threshold
+	@Override
+	protected boolean isDiscardable(ILoggingEvent evt)
+	{
+		boolean result = super.isDiscardable(evt);
+		if (result)
+		{
+			DISCARDED_COUNT.increment();
+		}
+		return result;
+	}
+
+	public static long getDiscardedCount()
+	{
+		return DISCARDED_COUNT.sum();
+	}
+
+	public static long getOverflowCount()
+	{
+		return OVERFLOW_COUNT.sum();
+	}
+}
@@ -0,0 +1,20 @@
+package org.virginiaso.photogator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("org.virginiaso.EdtStall")
+@Label("EDT Stall")
+@Category({ "Photogator", "UI" })
+@Description("A heartbeat task waited longer than the stall threshold for the event dispatch thread")
+@StackTrace(false)
+final class EdtStallEvent extends jdk.jfr.Event
+{
+	@Label("Stall")
+	@Timespan(Timespan.NANOSECONDS)
+	long stallNanos;
+}
@@ -0,0 +1,122 @@
+package org.virginiaso.photogator;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Detects stalls of the Swing event dispatch thread.  A watchdog thread posts a
+ * heartbeat task to the EDT and, if the task has not run within the stall
+ * threshold, captures the EDT's stack while it is still stuck, so the log shows
+ * what was blocking it.  When the heartbeat finally runs, the stall's total
+ * duration goes to the log, the EDT_STALL histogram, and a JFR event.  Modal
+ * dialogs pump events, so an open dialog does not count as a stall.
+ */
+final class EdtWatchdog implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(EdtWatchdog.class);
+	private static final long CHECK_INTERVAL_MS = 50;
+
+	private final long stallThresholdNanos;
+	private final PipelineMetrics metrics;
+	private final ScheduledExecutorService watchdog;
+	private final AtomicBoolean heartbeatPending = new AtomicBoolean(false);
+	private volatile long heartbeatPostedTime;
+	private volatile Thread edt;
+	private boolean isStackCaptured;	// Accessed only on the watchdog thread
+
+	public EdtWatchdog(long stallThresholdMillis, PipelineMetrics pipelineMetrics)
+	{
+		stallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(stallThresholdMillis);
+		metrics = pipelineMetrics;
+		watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform()
+			.name("edt-watchdog")
+			.daemon(true)
+			.unstarted(runnable));
+		heartbeatPostedTime = 0;
+		edt = null;
+		isStackCaptured = false;
+	}
+
+	public void start()
+	{
+		if (EventQueue.isDispatchThread())
+		{
+			edt = Thread.currentThread();
+		}
+		watchdog.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	private void check()
+	{
+		try
+		{
+			long now = System.nanoTime();
+			if (!heartbeatPending.get())
+			{
+				heartbeatPostedTime = now;
+				isStackCaptured = false;
+				heartbeatPending.set(true);
+				EventQueue.invokeLater(this::onHeartbeat);
+			}
+			else if (!isStackCaptured && now - heartbeatPostedTime >= stallThresholdNanos)
+			{
+				isStackCaptured = true;
+				captureStack(now - heartbeatPostedTime);
+			}
+		}
+		catch (RuntimeException ex)
+		{
+			// Keep the watchdog running no matter what:
+			LOG.error("EDT watchdog failed", ex);
+		}
+	}
+
+	private void captureStack(long stalledNanos)
+	{
+		Thread stalledThread = edt;
+		if (stalledThread == null)
+		{
+			LOG.warn("The EDT has not responded for {} ms", TimeUnit.NANOSECONDS.toMillis(stalledNanos));
+			return;
+		}
+
+		StringBuilder stack = new StringBuilder();
+		for (StackTraceElement frame : stalledThread.getStackTrace())
+		{
+			stack.append(System.lineSeparator()).append("\tat ").append(frame);
+		}
+		LOG.warn("The EDT has not responded for {} ms; it is at:{}",
+			TimeUnit.NANOSECONDS.toMillis(stalledNanos), stack);
+	}
+
+	// Runs on the EDT
+	private void onHeartbeat()
+	{
+		edt = Thread.currentThread();
+		long delayNanos = System.nanoTime() - heartbeatPostedTime;
+		heartbeatPending.set(false);
+		if (delayNanos >= stallThresholdNanos)
+		{
+			metrics.record(PipelineMetrics.Stage.EDT_STALL, delayNanos);
+			LOG.warn("The EDT stalled for {} ms", TimeUnit.NANOSECONDS.toMillis(delayNanos));
+			EdtStallEvent jfrEvt = new EdtStallEvent();
+			if (jfrEvt.shouldCommit())
+			{
+				jfrEvt.stallNanos = delayNanos;
+				jfrEvt.commit();
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		watchdog.shutdownNow();
+	}
+}
@@ -1,7 +1,22 @@
 package org.virginiaso.photogator;
 
+import java.util.function.Supplier;
+
 public enum ElapsedTimeComputeMethod
 {
-	CONSECUTIVE_START_END_PAIR,
-	FIRST_START_AFTER_READY
+	CONSECUTIVE_START_END_PAIR(ConsecutiveStartEndPairStrategy::new),
+	FIRST_START_AFTER_READY(FirstStartAfterReadyStrategy::new),
+	FIFO_OVERLAPPING_RUNS(FifoOverlappingRunsStrategy::new);
+
+	private final Supplier<TimingStrategy> strategyFactory;
+
+	private ElapsedTimeComputeMethod(Supplier<TimingStrategy> strategyFactory)
+	{
+		this.strategyFactory = strategyFactory;
+	}
+
+	public TimingStrategy createStrategy()
+	{
+		return strategyFactory.get();
+	}
 }
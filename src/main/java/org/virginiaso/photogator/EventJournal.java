@@ -0,0 +1,487 @@
+package org.virginiaso.photogator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.UnrecognizedMsgEvent;
+
+/*
+ * An append-only journal of everything that has happened since the display was
+ * last saved, so that a crash, a sleeping laptop, or an accidental close loses
+ * nothing.  Each line is one record:
+ *
+ *    E <wall clock ms> <clock epoch>:<Arduino timeline ms> <message as sent by the Arduino>
+ *    R <wall clock ms>                                  (Ready button)
+ *    C <wall clock ms> <compute method>
+ *
+ * Appends go straight to a FileChannel (i.e., the OS page cache), while a
+ * background thread forces the channel to disk at most every FORCE_INTERVAL_MS,
+ * so that one fsync covers a whole group of records.  Appends must come from a
+ * single thread (the EDT).
+ *
+ * Saving the display sets the journal aside as a held file, named for the
+ * session being saved, and starts a new session in a fresh journal.  The held
+ * file is deleted once the save completes.  If the application dies first, the
+ * held records are folded back into the journal at the next start, unless the
+ * session's files turn out to have been written after all.
+ */
+final class EventJournal implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(EventJournal.class);
+
+	interface ReplayHandler
+	{
+		void onEvent(ArduinoEvent evt);
+		void onReady();
+		void onComputeMethod(ElapsedTimeComputeMethod computeMethod);
+	}
+
+	private static final long FORCE_INTERVAL_MS = 100;
+	private static final long STATS_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+	private static final char EVENT_RECORD = 'E';
+	private static final char READY_RECORD = 'R';
+	private static final char COMPUTE_METHOD_RECORD = 'C';
+	private static final String DISCARDED_SUFFIX = ".discarded";
+
+	private final File journalFile;
+	private final ZoneId zone = ZoneId.systemDefault();
+	private final StringBuilder pendingText = new StringBuilder();
+	private final AtomicBoolean isDirty = new AtomicBoolean(false);
+	private ScheduledExecutorService flusher;
+	private FileChannel channel;
+
+	// Statistics.  Record counts and write times are updated on the EDT, force times on the flusher thread.
+	private volatile long recordCount = 0;
+	private volatile long bytesWritten = 0;
+	private volatile long writeNanos = 0;
+	private volatile long forceCount = 0;
+	private volatile long forceNanos = 0;
+	private volatile long maxForceNanos = 0;
+
+	public EventJournal(File journalFile)
+	{
+		this.journalFile = journalFile;
+	}
+
+	// Replays an existing journal.  Returns the number of records replayed.
+	public int replay(ReplayHandler handler) throws IOException
+	{
+		if (!journalFile.isFile())
+		{
+			return 0;
+		}
+
+		int numReplayed = 0;
+		try (BufferedReader rdr = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8))
+		{
+			for (String line = rdr.readLine(); line != null; line = rdr.readLine())
+			{
+				try
+				{
+					if (replayRecord(line, handler))
+					{
+						++numReplayed;
+					}
+				}
+				catch (RuntimeException ex)
+				{
+					// Most likely a record torn by a crash, so skip it
+					LOG.warn("Skipping malformed journal record '{}': {}", line, ex.toString());
+				}
+			}
+		}
+		return numReplayed;
+	}
+
+	/*
+	 * Gap events are synthesized by the host, so they are resolved here rather
+	 * than registered with ArduinoEvent, where a serial line could forge one.
+	 */
+	private static ArduinoEvent parseEvent(String msg)
+	{
+		return msg.startsWith(SequenceGapEvent.MSG_PREFIX)
+			? SequenceGapEvent.create(msg, SequenceGapEvent.MSG_PREFIX.length())
+			: ArduinoEvent.parse(msg);
+	}
+
+	private boolean replayRecord(String line, ReplayHandler handler)
+	{
+		String[] fields = line.split(" ", 4);
+		if (fields.length < 2 || fields[0].length() != 1)
+		{
+			return false;
+		}
+
+		LocalDateTime wallClockTime = LocalDateTime.ofInstant(
+			Instant.ofEpochMilli(Long.parseLong(fields[1])), zone);
+		switch (fields[0].charAt(0))
+		{
+		case EVENT_RECORD:
+			ArduinoEvent evt = parseEvent(fields[3]);
+			if (evt == null)
+			{
+				evt = new UnrecognizedMsgEvent(fields[3]);
+			}
+			int colon = fields[2].indexOf(':');
+			long clockEpoch = (colon < 0)	// Journals written before epochs were recorded
+				? ArduinoEvent.NO_CLOCK_EPOCH
+				: Long.parseLong(fields[2], 0, colon, 10);
+			evt.setSynchronizedTime(clockEpoch, Long.parseLong(fields[2], colon + 1, fields[2].length(), 10),
+				wallClockTime);
+			handler.onEvent(evt);
+			return true;
+		case READY_RECORD:
+			handler.onReady();
+			return true;
+		case COMPUTE_METHOD_RECORD:
+			handler.onComputeMethod(ElapsedTimeComputeMethod.valueOf(fields[2]));
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/*
+	 * Deals with held files left behind when the application ended before their
+	 * saves completed.  A held file whose session was saved is deleted, and the
+	 * records of the others are put back at the front of the journal (oldest
+	 * first), so that replay restores them.  Call this before replay().  Returns
+	 * the number of unsaved sessions recovered.
+	 */
+	public int recoverHeldSessions(Predicate<String> isSessionSaved) throws IOException
+	{
+		String journalName = journalFile.getName();
+		File[] heldFiles = journalFile.getAbsoluteFile().getParentFile().listFiles(
+			(_, name) -> isHeldFileName(journalName, name));
+		if (heldFiles == null || heldFiles.length == 0)
+		{
+			return 0;
+		}
+
+		Arrays.sort(heldFiles, Comparator.comparingLong(File::lastModified));
+		StringBuilder unsavedText = new StringBuilder();
+		int numUnsaved = 0;
+		for (File heldFile : heldFiles)
+		{
+			String sessionLabel = getSessionLabel(journalName, heldFile.getName());
+			if (isSessionSaved.test(sessionLabel))
+			{
+				LOG.info("Session {} was saved; deleting its held journal '{}'", sessionLabel, heldFile);
+			}
+			else
+			{
+				LOG.warn("Session {} was never saved; restoring it from '{}'", sessionLabel, heldFile);
+				unsavedText.append(Files.readString(heldFile.toPath(), StandardCharsets.UTF_8));
+				++numUnsaved;
+			}
+		}
+
+		if (numUnsaved > 0)
+		{
+			if (journalFile.isFile())
+			{
+				unsavedText.append(Files.readString(journalFile.toPath(), StandardCharsets.UTF_8));
+			}
+			Path tempPath = Files.createTempFile(journalFile.getAbsoluteFile().getParentFile().toPath(),
+				journalName, ".tmp");
+			Files.writeString(tempPath, unsavedText, StandardCharsets.UTF_8);
+			Files.move(tempPath, journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		}
+		for (File heldFile : heldFiles)
+		{
+			Files.deleteIfExists(heldFile.toPath());
+		}
+		return numUnsaved;
+	}
+
+	// The journal "PhotogatorJournal.txt" is held for session A12-003 as "PhotogatorJournal-A12-003.txt"
+	private File getHeldFile(String sessionLabel)
+	{
+		String journalName = journalFile.getName();
+		int dot = journalName.lastIndexOf('.');
+		String heldName = (dot < 0)
+			? journalName + "-" + sessionLabel
+			: journalName.substring(0, dot) + "-" + sessionLabel + journalName.substring(dot);
+		return new File(journalFile.getAbsoluteFile().getParentFile(), heldName);
+	}
+
+	private static boolean isHeldFileName(String journalName, String fileName)
+	{
+		int dot = journalName.lastIndexOf('.');
+		String stem = (dot < 0) ? journalName : journalName.substring(0, dot);
+		String extension = (dot < 0) ? "" : journalName.substring(dot);
+		return fileName.length() > stem.length() + 1 + extension.length()
+			&& fileName.startsWith(stem + "-")
+			&& fileName.endsWith(extension);
+	}
+
+	private static String getSessionLabel(String journalName, String heldFileName)
+	{
+		int dot = journalName.lastIndexOf('.');
+		int stemLength = (dot < 0) ? journalName.length() : dot;
+		int extensionLength = journalName.length() - stemLength;
+		return heldFileName.substring(stemLength + 1, heldFileName.length() - extensionLength);
+	}
+
+	// Opens the journal for appending after any existing records
+	public void open() throws IOException
+	{
+		journalFile.getParentFile().mkdirs();
+		channel = openChannel();
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform()
+			.name("journal-flusher")
+			.daemon(true)
+			.unstarted(runnable));
+		flusher.scheduleWithFixedDelay(this::force, FORCE_INTERVAL_MS, FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		flusher.scheduleWithFixedDelay(this::logStatistics, STATS_INTERVAL_MS, STATS_INTERVAL_MS,
+			TimeUnit.MILLISECONDS);
+	}
+
+	private FileChannel openChannel() throws IOException
+	{
+		return FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	public void appendEvents(List<ArduinoEvent> events)
+	{
+		for (ArduinoEvent evt : events)
+		{
+			startRecord(EVENT_RECORD, evt.getWallClockTime())
+				.append(' ').append(evt.getClockEpoch()).append(':').append(evt.getTimelineTime())
+				.append(' ').append(evt.formatMsg())
+				.append('\n');
+		}
+		write(events.size());
+	}
+
+	public void appendReady()
+	{
+		startRecord(READY_RECORD, LocalDateTime.now()).append('\n');
+		write(1);
+	}
+
+	public void appendComputeMethod(ElapsedTimeComputeMethod computeMethod)
+	{
+		startRecord(COMPUTE_METHOD_RECORD, LocalDateTime.now()).append(' ').append(computeMethod.name()).append('\n');
+		write(1);
+	}
+
+	/*
+	 * Sets the records of the session being saved aside in a held file and starts
+	 * a new session.  Returns the held file, which the caller passes to
+	 * releaseHeld() when the save completes or to discardHeld() if it is
+	 * abandoned.  If the journal cannot be set aside, it is left as it is, so
+	 * that the records are still recovered after a crash.
+	 */
+	public File holdForSave(String sessionLabel, ElapsedTimeComputeMethod computeMethod)
+	{
+		File heldFile = getHeldFile(sessionLabel);
+		IOException failure = null;
+		synchronized (this)	// Keeps the flusher off the channel while it is swapped
+		{
+			if (channel != null)
+			{
+				try
+				{
+					channel.force(false);
+					channel.close();
+					channel = null;
+					Files.move(journalFile.toPath(), heldFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+					channel = openChannel();
+				}
+				catch (IOException ex)
+				{
+					failure = ex;
+				}
+			}
+		}
+		if (failure != null)
+		{
+			disable(failure);
+		}
+		appendComputeMethod(computeMethod);
+		return heldFile;
+	}
+
+	// Deletes a held file once its session has been saved
+	public void releaseHeld(File heldFile)
+	{
+		try
+		{
+			Files.deleteIfExists(heldFile.toPath());
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to delete the held journal '{}'", heldFile, ex);
+		}
+	}
+
+	/*
+	 * Renames a held file whose save was abandoned, so that it is not restored at
+	 * the next start, but its records are still on disk should they be wanted.
+	 */
+	public void discardHeld(File heldFile)
+	{
+		File discardedFile = new File(heldFile.getPath() + DISCARDED_SUFFIX);
+		try
+		{
+			if (heldFile.isFile())
+			{
+				Files.move(heldFile.toPath(), discardedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				LOG.info("Records of the unsaved session are kept in '{}'", discardedFile);
+			}
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to rename the held journal '{}'", heldFile, ex);
+		}
+	}
+
+	// Discards the records of the saved session and starts a new one
+	public void startNewSession(ElapsedTimeComputeMethod computeMethod)
+	{
+		if (channel != null)
+		{
+			try
+			{
+				channel.truncate(0);
+			}
+			catch (IOException ex)
+			{
+				disable(ex);
+			}
+		}
+		appendComputeMethod(computeMethod);
+	}
+
+	private StringBuilder startRecord(char recordType, LocalDateTime wallClockTime)
+	{
+		return pendingText.append(recordType).append(' ')
+			.append(wallClockTime.atZone(zone).toInstant().toEpochMilli());
+	}
+
+	private void write(int numRecords)
+	{
+		if (channel == null || pendingText.isEmpty())
+		{
+			pendingText.setLength(0);
+			return;
+		}
+
+		long startTime = System.nanoTime();
+		ByteBuffer bytes = ByteBuffer.wrap(pendingText.toString().getBytes(StandardCharsets.UTF_8));
+		pendingText.setLength(0);
+		try
+		{
+			while (bytes.hasRemaining())
+			{
+				bytesWritten += channel.write(bytes);
+			}
+			recordCount += numRecords;
+			writeNanos += System.nanoTime() - startTime;
+			isDirty.set(true);
+		}
+		catch (IOException ex)
+		{
+			disable(ex);
+		}
+	}
+
+	private synchronized void force()
+	{
+		if (channel != null && isDirty.getAndSet(false))
+		{
+			try
+			{
+				long startTime = System.nanoTime();
+				channel.force(false);
+				long elapsed = System.nanoTime() - startTime;
+				++forceCount;
+				forceNanos += elapsed;
+				maxForceNanos = Math.max(maxForceNanos, elapsed);
+			}
+			catch (IOException ex)
+			{
+				LOG.error("Unable to force the event journal to disk", ex);
+			}
+		}
+	}
+
+	private void disable(IOException ex)
+	{
+		LOG.error("Disabling the event journal '{}' due to an I/O error", journalFile.getAbsolutePath(), ex);
+		close();
+	}
+
+	public void logStatistics()
+	{
+		if (LOG.isInfoEnabled())
+		{
+			long numRecords = recordCount;
+			long numForces = forceCount;
+			LOG.info(
+				"Journal: %1$d records, %2$d bytes, %3$.2f us/record write, %4$d fsyncs, %5$.2f ms mean / %6$.2f ms max fsync"
+				.formatted(numRecords, bytesWritten, (numRecords == 0) ? 0.0 : writeNanos / 1000.0 / numRecords,
+					numForces, (numForces == 0) ? 0.0 : forceNanos / 1_000_000.0 / numForces,
+					maxForceNanos / 1_000_000.0));
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		if (flusher != null)
+		{
+			flusher.shutdown();
+			try
+			{
+				flusher.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			flusher = null;
+		}
+		if (channel != null)
+		{
+			try
+			{
+				isDirty.set(true);
+				force();
+				channel.close();
+			}
+			catch (IOException ex)
+			{
+				LOG.error("Unable to close the event journal", ex);
+			}
+			channel = null;
+			logStatistics();
+		}
+	}
+}
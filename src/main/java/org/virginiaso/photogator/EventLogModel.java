@@ -0,0 +1,125 @@
+package org.virginiaso.photogator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.AbstractListModel;
+
+/*
+ * A bounded ring buffer of log entries, exposed as a ListModel so that a JList
+ * with a fixed cell size lays out only the visible rows.  Appending is O(1) per
+ * entry, and once the buffer is full the oldest entries are discarded.  Use on
+ * the EDT only.
+ */
+public final class EventLogModel extends AbstractListModel<LogEntry>
+{
+	private static final long serialVersionUID = 1L;
+	private static final String DISCARDED_ENTRIES_FMT
+		= "(%1$d earlier entries were discarded because the display was full)%n";
+
+	private final transient LogEntry[] entries;
+	private int first;
+	private int size;
+	private long discardedCount;
+
+	public EventLogModel(int capacity)
+	{
+		entries = new LogEntry[capacity];
+		first = 0;
+		size = 0;
+		discardedCount = 0;
+	}
+
+	@Override
+	public int getSize()
+	{
+		return size;
+	}
+
+	@Override
+	public LogEntry getElementAt(int index)
+	{
+		return entries[(first + index) % entries.length];
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	// Appends a batch of entries with at most one notification of each kind
+	public void appendAll(List<? extends LogEntry> newEntries)
+	{
+		if (newEntries.isEmpty())
+		{
+			return;
+		}
+
+		int oldSize = size;
+		boolean discarded = false;
+		for (LogEntry entry : newEntries)
+		{
+			if (size == entries.length)
+			{
+				entries[first] = null;
+				first = (first + 1) % entries.length;
+				--size;
+				++discardedCount;
+				discarded = true;
+			}
+			entries[(first + size) % entries.length] = entry;
+			++size;
+		}
+
+		// Discarding shifts every old row, while any growth appends new rows at the end:
+		if (discarded && oldSize > 0)
+		{
+			fireContentsChanged(this, 0, oldSize - 1);
+		}
+		if (size > oldSize)
+		{
+			fireIntervalAdded(this, oldSize, size - 1);
+		}
+	}
+
+	public void clear()
+	{
+		int oldSize = size;
+		for (int i = 0; i < size; ++i)
+		{
+			entries[(first + i) % entries.length] = null;
+		}
+		first = 0;
+		size = 0;
+		discardedCount = 0;
+		if (oldSize > 0)
+		{
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+	}
+
+	public List<LogEntry> snapshot()
+	{
+		List<LogEntry> result = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i)
+		{
+			result.add(getElementAt(i));
+		}
+		return result;
+	}
+
+	// The text of every entry, as it should appear in a saved session
+	public String toText()
+	{
+		StringBuilder text = new StringBuilder();
+		if (discardedCount > 0)
+		{
+			text.append(DISCARDED_ENTRIES_FMT.formatted(discardedCount));
+		}
+		for (int i = 0; i < size; ++i)
+		{
+			text.append(getElementAt(i).format());
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,90 @@
+package org.virginiaso.photogator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.OverflowEvent;
+
+/*
+ * Watches the incoming events for beam breaks that were lost on the way to the
+ * host.  The firmware numbers beam breaks consecutively from 1, including any
+ * it had to drop, so a jump in sequence number is a gap.  A sequence number
+ * that does not advance means the Arduino was reset (e.g., by a reconnect), so
+ * counting restarts without reporting a gap.  The firmware's own overflow
+ * count is cumulative since it started, so it is converted to increments here.
+ * Every overflow also consumes a sequence number, so overflows are a subset of
+ * the gaps and are counted for the metrics only.
+ *
+ * Not thread safe:  call observe() from the serial port's thread only.
+ */
+final class EventLossTracker
+{
+	private static final Logger LOG = LoggerFactory.getLogger(EventLossTracker.class);
+	private static final long NO_SEQ_NUM = -1;
+
+	private final PipelineMetrics metrics;
+	private long lastSeqNum;
+	private long lastOverflowCount;
+
+	public EventLossTracker(PipelineMetrics pipelineMetrics)
+	{
+		metrics = pipelineMetrics;
+		lastSeqNum = NO_SEQ_NUM;
+		lastOverflowCount = 0;
+	}
+
+	// Returns the gap that evt reveals, or null if there is none
+	public SequenceGapEvent observe(ArduinoEvent evt)
+	{
+		if (evt instanceof BeamBrokenEvent bbEvt)
+		{
+			return observeSeqNum(bbEvt.getSeqNum());
+		}
+		else if (evt instanceof OverflowEvent overflowEvt)
+		{
+			observeOverflowCount(overflowEvt.getOverflowCount());
+		}
+		return null;
+	}
+
+	private SequenceGapEvent observeSeqNum(long seqNum)
+	{
+		long previousSeqNum = lastSeqNum;
+		lastSeqNum = seqNum;
+		if (previousSeqNum == NO_SEQ_NUM)
+		{
+			return null;
+		}
+		else if (seqNum <= previousSeqNum)
+		{
+			LOG.info("Beam-broken sequence restarted at #{} after #{}; the Arduino was probably reset",
+				seqNum, previousSeqNum);
+			lastOverflowCount = 0;
+			return null;
+		}
+		else if (seqNum == previousSeqNum + 1)
+		{
+			return null;
+		}
+
+		SequenceGapEvent gap = new SequenceGapEvent(previousSeqNum + 1, seqNum - 1);
+		metrics.addLostEvents(gap.getMissingCount());
+		LOG.warn("Lost beam-broken events #{} to #{}", gap.getFirstMissingSeqNum(), gap.getLastMissingSeqNum());
+		return gap;
+	}
+
+	private void observeOverflowCount(long overflowCount)
+	{
+		// A count lower than the last one means the Arduino was reset:
+		long newOverflows = (overflowCount >= lastOverflowCount)
+			? overflowCount - lastOverflowCount
+			: overflowCount;
+		lastOverflowCount = overflowCount;
+		if (newOverflows > 0)
+		{
+			metrics.addFirmwareOverflows(newOverflows);
+			LOG.warn("Events dropped by the Arduino because its queue was full: {} more, {} since it started",
+				newOverflows, overflowCount);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package org.virginiaso.photogator;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+
+/*
+ * Allows several runs to be on the course at once:  runs wait in a bounded
+ * queue in the order they started, and each intermediate or finish gate is
+ * credited to the oldest run that has not yet passed it.  Runs that wait longer
+ * than the timeout, or that are pushed out of a full queue, and gate crossings
+ * that match no run are reported as unmatched.  The timeout is checked on every
+ * beam break and on every heartbeat, so an orphaned start is reported even if
+ * no other beam is broken.
+ */
+public final class FifoOverlappingRunsStrategy implements TimingStrategy
+{
+	public static final int DEFAULT_MAX_OUTSTANDING_STARTS = 8;
+	public static final long DEFAULT_START_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+	private final int maxOutstandingStarts;
+	private final long startTimeoutMs;
+	private final ArrayDeque<RunInProgress> outstandingRuns;
+	private final ArrayDeque<RunInProgress> freeRuns;
+
+	public FifoOverlappingRunsStrategy()
+	{
+		this(DEFAULT_MAX_OUTSTANDING_STARTS, DEFAULT_START_TIMEOUT_MS);
+	}
+
+	public FifoOverlappingRunsStrategy(int maxOutstandingStarts, long startTimeoutMs)
+	{
+		this.maxOutstandingStarts = maxOutstandingStarts;
+		this.startTimeoutMs = startTimeoutMs;
+		outstandingRuns = new ArrayDeque<>(maxOutstandingStarts);
+		freeRuns = new ArrayDeque<>(maxOutstandingStarts);
+		for (int i = 0; i < maxOutstandingStarts; ++i)
+		{
+			freeRuns.addLast(new RunInProgress());
+		}
+	}
+
+	@Override
+	public void onBeamBroken(BeamBrokenEvent evt, TimingListener listener)
+	{
+		expireRuns(evt.getTimelineTime(), listener);
+		if (evt.getSensorId().isStart())
+		{
+			if (outstandingRuns.size() >= maxOutstandingStarts)
+			{
+				RunInProgress displacedRun = outstandingRuns.removeFirst();
+				listener.onUnmatched(displacedRun.getStartEvent(), UnmatchedReason.START_DISPLACED);
+				release(displacedRun);
+			}
+			RunInProgress run = freeRuns.removeFirst();
+			run.start(evt);
+			outstandingRuns.addLast(run);
+		}
+		else
+		{
+			RunInProgress run = findOldestRunAccepting(evt);
+			if (run == null)
+			{
+				listener.onUnmatched(evt, evt.getSensorId().isFinish()
+					? UnmatchedReason.FINISH_WITHOUT_START
+					: UnmatchedReason.SPLIT_WITHOUT_START);
+			}
+			else
+			{
+				run.record(evt, listener);
+				if (evt.getSensorId().isFinish())
+				{
+					listener.onResult(run.toResult());
+					outstandingRuns.remove(run);
+					release(run);
+				}
+			}
+		}
+	}
+
+	private RunInProgress findOldestRunAccepting(BeamBrokenEvent evt)
+	{
+		for (RunInProgress run : outstandingRuns)
+		{
+			if (run.accepts(evt))
+			{
+				return run;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void expireRuns(long now, TimingListener listener)
+	{
+		while (!outstandingRuns.isEmpty()
+			&& now - outstandingRuns.peekFirst().getStartEvent().getTimelineTime() > startTimeoutMs)
+		{
+			RunInProgress expiredRun = outstandingRuns.removeFirst();
+			listener.onUnmatched(expiredRun.getStartEvent(), UnmatchedReason.START_TIMED_OUT);
+			release(expiredRun);
+		}
+	}
+
+	private void release(RunInProgress run)
+	{
+		run.clear();
+		freeRuns.addLast(run);
+	}
+
+	public int getOutstandingStartCount()
+	{
+		return outstandingRuns.size();
+	}
+
+	@Override
+	public void ready()
+	{
+		// The Ready button does not apply to this strategy
+	}
+
+	@Override
+	public void abandonRuns(TimingListener listener, UnmatchedReason reason)
+	{
+		while (!outstandingRuns.isEmpty())
+		{
+			RunInProgress abandonedRun = outstandingRuns.removeFirst();
+			listener.onUnmatched(abandonedRun.getStartEvent(), reason);
+			release(abandonedRun);
+		}
+	}
+}
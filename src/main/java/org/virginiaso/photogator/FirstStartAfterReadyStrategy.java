@@ -0,0 +1,45 @@
+package org.virginiaso.photogator;
+
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+
+public final class FirstStartAfterReadyStrategy implements TimingStrategy
+{
+	private final RunInProgress run = new RunInProgress();
+
+	@Override
+	public void onBeamBroken(BeamBrokenEvent evt, TimingListener listener)
+	{
+		if (evt.getSensorId().isStart())
+		{
+			if (!run.isStarted())
+			{
+				run.start(evt);
+			}
+		}
+		else if (run.accepts(evt))
+		{
+			run.record(evt, listener);
+			if (evt.getSensorId().isFinish())
+			{
+				listener.onResult(run.toResult());
+				run.clear();
+			}
+		}
+	}
+
+	@Override
+	public void ready()
+	{
+		run.clear();
+	}
+
+	@Override
+	public void abandonRuns(TimingListener listener, UnmatchedReason reason)
+	{
+		if (run.isStarted())
+		{
+			listener.onUnmatched(run.getStartEvent(), reason);
+			run.clear();
+		}
+	}
+}
@@ -8,8 +8,12 @@ import java.awt.LayoutManager;
 
 import javax.swing.JPanel;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public final class ImagePanel extends JPanel
 {
+	private static final Logger LOG = LoggerFactory.getLogger(ImagePanel.class);
 	private static final long serialVersionUID = 1L;
 
 	private transient Image image;
@@ -47,7 +51,7 @@ public final class ImagePanel extends JPanel
 		catch (InterruptedException ex)
 		{
 			// Ignore
-			ex.printStackTrace(Photogator.ERR_LOG);
+			LOG.debug("Interrupted while loading an image", ex);
 		}
 		int imgWidth = image.getWidth(null);
 		int imgHeight = image.getHeight(null);
@@ -3,7 +3,10 @@ package org.virginiaso.photogator;
 import java.awt.BorderLayout;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -17,29 +20,29 @@ import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 import javax.swing.JRadioButton;
 import javax.swing.SwingConstants;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.virginiaso.serialport.ArduinoEvent;
 import org.virginiaso.serialport.HeartBeatEvent;
-import org.virginiaso.serialport.SerialPortReader;
+import org.virginiaso.serialport.SerialPortProber;
 
-import jssc.SerialPortException;
 import jssc.SerialPortList;
 
 public final class InitializationDialog extends JDialog
 {
+	private static final Logger LOG = LoggerFactory.getLogger(InitializationDialog.class);
 	private static final long serialVersionUID = 1L;
 	private static final String DIALOG_TITLE = "Connecting...";
 	private static final String HEADING_TEXT = "Searching for photogates on serial port:          ";
 	private static final String EXIT_BTN_TEXT = "Exit";
-	private static final int TIMER_INITIAL_DELAY_MS = 500;
-	private static final int TIMER_INTERVAL_MS = 100;
-	private static final Object LOCK = new Object();
 
 	/*
 	 * Five seconds may seem excessive, but it takes the Arduino a considerable time
 	 * (about 2.5 seconds) to "wake up" after the serial port connection is made.
+	 * All ports are probed concurrently, so this bounds the total search time.
 	 */
 	private static final long TIME_LIMIT_FOR_ARDUINO_HEARTBEAT_MS = 5000;
 
@@ -50,22 +53,36 @@ public final class InitializationDialog extends JDialog
 	private JProgressBar progBar;
 	private JButton exitBtn;
 	private Box progAndExitBox;
-	private Timer timer;
-	private int currentRadioBtnIndex = -1;
-	private long currentRadioBtnStartTime = System.currentTimeMillis() - 2 * TIME_LIMIT_FOR_ARDUINO_HEARTBEAT_MS;
-	private transient SerialPortReader portRdr = null;
-	private boolean arduinoDetected = false;
+	private transient SerialPortProber prober = null;
+	private boolean isProbeCancelled = false;
+	private final String rememberedPort;
 	private String foundSerialPort = null;
+	private DiscoveryOutcome discoveryOutcome = null;
 
-	public InitializationDialog(JFrame frame)
+	public enum DiscoveryOutcome
+	{
+		REMEMBERED_PORT,
+		FULL_SCAN
+	}
+
+	public InitializationDialog(JFrame frame, String rememberedSerialPort)
 	{
 		super(frame, DIALOG_TITLE, true); // make's this a modal dialog
+		rememberedPort = rememberedSerialPort;
 		initComponents();
 	}
 
 	private void initComponents()
 	{
 		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowClosing(WindowEvent evt)
+			{
+				cancelProbe();
+			}
+		});
 
 		headingLbl = new JLabel(HEADING_TEXT);
 
@@ -106,102 +123,96 @@ public final class InitializationDialog extends JDialog
 		pack();
 		setLocationRelativeTo(getOwner());
 
-		timer = new Timer(TIMER_INTERVAL_MS, this::onTimerEvent);
-		timer.setInitialDelay(TIMER_INITIAL_DELAY_MS);
-		timer.start();
-	}
-
-	private void onTimerEvent(@SuppressWarnings("unused") ActionEvent evt)
-	{
-		if (!isASerialPortPresent())
+		List<String> portNames = serialPortBtns.stream()
+			.map(JRadioButton::getActionCommand)
+			.collect(Collectors.toList());
+		if (rememberedPort != null && portNames.contains(rememberedPort))
 		{
-			// Do nothing
+			startRememberedPortProbe(portNames);
 		}
-		else if (isArduinoDetected())
+		else if (isASerialPortPresent())
 		{
-			timer.stop();
-			foundSerialPort = portRdr.getSerialPortName();
-			disconnectFromSerialPort();
-			setVisible(false);
+			startFullScan(portNames);
 		}
-		else if (System.currentTimeMillis() - currentRadioBtnStartTime > TIME_LIMIT_FOR_ARDUINO_HEARTBEAT_MS)
-		{
-			// Terminate existing serial port connection, if any:
-			disconnectFromSerialPort();
-
-			// Move to the next serial port:
-			currentRadioBtnStartTime = System.currentTimeMillis();
-			++currentRadioBtnIndex;
-			currentRadioBtnIndex %= serialPortBtns.size();
-			JRadioButton currentBtn = serialPortBtns.get(currentRadioBtnIndex);
-			currentBtn.setSelected(true);
-			String portName = currentBtn.getActionCommand();
-
-			// Connect to portName:
-			try
+	}
+
+	private void startRememberedPortProbe(List<String> portNames)
+	{
+		LOG.info("Trying remembered serial port '{}' first", rememberedPort);
+		selectPortBtn(rememberedPort);
+		prober = new SerialPortProber(List.of(rememberedPort), InitializationDialog::isArduinoMsg,
+			TIME_LIMIT_FOR_ARDUINO_HEARTBEAT_MS, 1);
+		prober.start().whenComplete((portName, ex) -> {
+			if (ex == null)
 			{
-				portRdr = new SerialPortReader(portName, this::serialPortRecieveAction, Photogator.ERR_LOG);
+				SwingUtilities.invokeLater(() -> onProbeComplete(portName, DiscoveryOutcome.REMEMBERED_PORT));
 			}
-			catch (SerialPortException ex)
+			else if (ex instanceof TimeoutException)
 			{
-				ex.printStackTrace(Photogator.ERR_LOG);
+				LOG.info("Remembered serial port '{}' is silent, scanning all ports", rememberedPort);
+				SwingUtilities.invokeLater(() -> startFullScan(portNames));
 			}
-		}
+		});
 	}
 
-	private void serialPortRecieveAction(String msg)
+	private void startFullScan(List<String> portNames)
 	{
-		ArduinoEvent evt = ArduinoEvent.parse(msg);
-		if (evt == null)
+		if (isProbeCancelled)
 		{
-			Photogator.ERR_LOG.format("Unrecognized message '%1$s'%n", msg);
-		}
-		else if (evt instanceof HeartBeatEvent || evt instanceof BeamBrokenEvent)
-		{
-			setArduinoDetected(true);
+			return;
 		}
+		prober = new SerialPortProber(portNames, InitializationDialog::isArduinoMsg,
+			TIME_LIMIT_FOR_ARDUINO_HEARTBEAT_MS);
+		prober.start().whenComplete((portName, ex) -> {
+			if (ex == null)
+			{
+				SwingUtilities.invokeLater(() -> onProbeComplete(portName, DiscoveryOutcome.FULL_SCAN));
+			}
+		});
 	}
 
-	private void disconnectFromSerialPort()
+	private void selectPortBtn(String portName)
 	{
-		if (portRdr != null)
-		{
-			try
-			{
-				portRdr.close();
-			}
-			catch (SerialPortException ex)
-			{
-				ex.printStackTrace(Photogator.ERR_LOG);
-			}
-			portRdr = null;
-		}
+		serialPortBtns.stream()
+			.filter(btn -> btn.getActionCommand().equals(portName))
+			.findFirst()
+			.ifPresent(btn -> btn.setSelected(true));
 	}
 
-	private void onExitBtn(@SuppressWarnings("unused") ActionEvent evt)
+	private void onProbeComplete(String portName, DiscoveryOutcome outcome)
 	{
-		timer.stop();
-		foundSerialPort = null;
-		disconnectFromSerialPort();
+		foundSerialPort = portName;
+		discoveryOutcome = outcome;
+		selectPortBtn(portName);
 		setVisible(false);
 	}
 
-	private boolean isArduinoDetected()
+	private static boolean isArduinoMsg(CharSequence msg)
 	{
-		synchronized (LOCK)
+		ArduinoEvent evt = ArduinoEvent.parse(msg);
+		if (evt == null)
 		{
-			return arduinoDetected;
+			LOG.debug("Unrecognized message '{}'", msg);
 		}
+		return evt instanceof HeartBeatEvent || evt instanceof BeamBrokenEvent;
 	}
 
-	private void setArduinoDetected(boolean newValue)
+	private void cancelProbe()
 	{
-		synchronized (LOCK)
+		isProbeCancelled = true;
+		if (prober != null)
 		{
-			arduinoDetected = newValue;
+			prober.close();
 		}
 	}
 
+	private void onExitBtn(@SuppressWarnings("unused") ActionEvent evt)
+	{
+		cancelProbe();
+		foundSerialPort = null;
+		setVisible(false);
+	}
+
 	public boolean isASerialPortPresent()
 	{
 		return serialPortBtns.size() > 0;
@@ -211,4 +222,9 @@ public final class InitializationDialog extends JDialog
 	{
 		return foundSerialPort;
 	}
+
+	public DiscoveryOutcome getDiscoveryOutcome()
+	{
+		return discoveryOutcome;
+	}
 }
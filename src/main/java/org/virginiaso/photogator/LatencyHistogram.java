@@ -0,0 +1,123 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * A lock-free histogram of latencies in nanoseconds.  Buckets are log-linear:
+ * each power of two is split into SUB_BUCKETS equal buckets, so any recorded
+ * value is known to within about 6%, from 1 ns up to about 18 minutes, in a
+ * fixed 608-slot array.  Recording is a few arithmetic operations plus one
+ * atomic increment, so it is cheap enough for the serial port thread and the
+ * EDT.  Percentiles are computed from a snapshot and are approximate while
+ * recording continues.
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int NUM_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong totalCount = new AtomicLong(0);
+	private final AtomicLong totalNanos = new AtomicLong(0);
+	private final AtomicLong maxNanos = new AtomicLong(0);
+
+	public void record(long nanos)
+	{
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		totalNanos.addAndGet(value);
+		if (value > maxNanos.get())
+		{
+			maxNanos.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	static int bucketIndex(long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT)
+		{
+			return NUM_BUCKETS - 1;
+		}
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	// The midpoint of the range of values that fall into the given bucket
+	static long bucketValue(int index)
+	{
+		if (index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		long lowerBound = (SUB_BUCKETS + index % SUB_BUCKETS) * width;
+		return lowerBound + width / 2;
+	}
+
+	public long getCount()
+	{
+		return totalCount.get();
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos.get();
+	}
+
+	public double getMeanNanos()
+	{
+		long count = totalCount.get();
+		return (count == 0)
+			? 0.0
+			: (double) totalNanos.get() / count;
+	}
+
+	// The latency below which the given percentage of recorded values fall, or 0 if nothing is recorded
+	public long getPercentileNanos(double percentile)
+	{
+		long[] snapshot = new long[NUM_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i)
+		{
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long cumulative = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i)
+		{
+			cumulative += snapshot[i];
+			if (cumulative >= rank)
+			{
+				return Math.min(bucketValue(i), maxNanos.get());
+			}
+		}
+		return maxNanos.get();
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < NUM_BUCKETS; ++i)
+		{
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+	}
+}
@@ -0,0 +1,72 @@
+package org.virginiaso.photogator;
+
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+import org.virginiaso.serialport.ArduinoEvent;
+
+/*
+ * One row of the event log.  Entries keep the structured data and render their
+ * text only when asked, so rows that are never displayed or saved are never
+ * formatted.
+ */
+public interface LogEntry
+{
+	// The entry's text as it appears in a saved session, including line breaks
+	String format();
+
+	// Whether the display should make this entry stand out
+	default boolean isEmphasized()
+	{
+		return false;
+	}
+
+	record Event(ArduinoEvent evt) implements LogEntry
+	{
+		@Override
+		public String format()
+		{
+			return evt.format();
+		}
+	}
+
+	record Split(BeamBrokenEvent previousEvt, BeamBrokenEvent evt) implements LogEntry
+	{
+		@Override
+		public String format()
+		{
+			return evt.formatSplit(previousEvt);
+		}
+	}
+
+	record Result(TimingResult result) implements LogEntry
+	{
+		@Override
+		public String format()
+		{
+			return result.finishEvent().formatDifference(result.startEvent());
+		}
+
+		@Override
+		public boolean isEmphasized()
+		{
+			return true;
+		}
+	}
+
+	record Unmatched(BeamBrokenEvent evt, UnmatchedReason reason) implements LogEntry
+	{
+		@Override
+		public String format()
+		{
+			return evt.formatUnmatched(reason);
+		}
+	}
+
+	record Message(String text) implements LogEntry
+	{
+		@Override
+		public String format()
+		{
+			return text;
+		}
+	}
+}
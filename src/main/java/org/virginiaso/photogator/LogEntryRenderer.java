@@ -0,0 +1,52 @@
+package org.virginiaso.photogator;
+
+import java.awt.Component;
+import java.awt.Font;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JList;
+
+// Renders each log entry on one line, formatting it only when it is painted
+public final class LogEntryRenderer extends DefaultListCellRenderer
+{
+	private static final long serialVersionUID = 1L;
+
+	private Font plainFont = null;
+	private Font boldFont = null;
+
+	@Override
+	public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+		boolean isSelected, boolean cellHasFocus)
+	{
+		LogEntry entry = (LogEntry) value;
+		super.getListCellRendererComponent(list, stripLineBreaks(entry.format()), index, isSelected,
+			cellHasFocus);
+		if (plainFont != list.getFont())
+		{
+			plainFont = list.getFont();
+			boldFont = plainFont.deriveFont(Font.BOLD);
+		}
+		setFont(entry.isEmphasized() ? boldFont : plainFont);
+		return this;
+	}
+
+	private static String stripLineBreaks(String text)
+	{
+		int start = 0;
+		int end = text.length();
+		while (start < end && isLineBreak(text.charAt(start)))
+		{
+			++start;
+		}
+		while (end > start && isLineBreak(text.charAt(end - 1)))
+		{
+			--end;
+		}
+		return text.substring(start, end);
+	}
+
+	private static boolean isLineBreak(char ch)
+	{
+		return ch == '\n' || ch == '\r';
+	}
+}
@@ -17,28 +17,27 @@ import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintStream;
 import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
@@ -46,21 +45,33 @@ import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
-import javax.swing.JTextArea;
 import javax.swing.JToolBar;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.WindowConstants;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.virginiaso.serialport.ArduinoClock;
 import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.ConnectionStatus;
+import org.virginiaso.serialport.EventSource;
 import org.virginiaso.serialport.HeartBeatEvent;
-import org.virginiaso.serialport.SerialPortReader;
+import org.virginiaso.serialport.OverflowEvent;
+import org.virginiaso.serialport.SerialCapture;
+import org.virginiaso.serialport.SerialFrame;
+import org.virginiaso.serialport.SerialPortSupervisor;
+import org.virginiaso.serialport.SerialReplay;
+import org.virginiaso.serialport.SimulatedArduino;
+import org.virginiaso.serialport.UnrecognizedMsgEvent;
 
 import jssc.SerialPortException;
 
@@ -75,21 +86,53 @@ public final class Photogator extends JFrame
 	private static final int TOOLBAR_IMAGE_SIZE = 24;
 	private static final String SERIAL_PORT_PROP = "serial.port";
 	private static final String SERIAL_PORT_ENV_VAR = "ARDUINO_SERIAL_PORT";
+	private static final String SENSORS_PROP = "sensors";
+	private static final String SENSORS_ENV_VAR = "PHOTOGATOR_SENSORS";
+	private static final String CAPTURE_PROP = "serial.capture";
+	private static final String CAPTURE_ENV_VAR = "PHOTOGATOR_SERIAL_CAPTURE";
+	private static final DateTimeFormatter CAPTURE_FILENM_TIME_FMT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 	private static final File PROPERTIES_FILE = new File("SerialPort.properties");
 	private static final File JAR_DIR = new File(System.getProperty("java.class.path")).getParentFile();
 	private static final File SAVED_SESSION_DIR = new File(JAR_DIR, APP_NAME + "Sessions");
-	private static final File LOG_FILE = new File(SAVED_SESSION_DIR, APP_NAME.toLowerCase() + ".log");
+
+	static
+	{
+		// Logback reads this property when the first logger is created, so it must be set before then:
+		configureLogDirectory();
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(Photogator.class);
+	private static final File JOURNAL_FILE = new File(SAVED_SESSION_DIR, APP_NAME + "Journal.txt");
+	private static final RememberedSerialPort REMEMBERED_PORT = new RememberedSerialPort(
+		new File(SAVED_SESSION_DIR, "LastSerialPort.properties"));
 	private static final String NOT_CONNECTED_MSG = "Not connected";
 	private static final String CONNECTED_MSG_FMT = "Connected to serial port %1$s";
+	private static final String RECONNECTED_MSG_FMT = "Connected to serial port %1$s (reconnected in %2$.1f s)";
+	private static final String STALE_MSG_FMT = "No heartbeat from serial port %1$s for %2$.1f s";
+	private static final String RECONNECTING_MSG_FMT = "Reconnecting to serial port %1$s...";
+	private static final String HEARTBEAT_STALE_PROP = "heartbeat.stale.ms";
+	private static final String LOG_DIR_PROP = "photogator.log.dir";
+	private static final long DEFAULT_HEARTBEAT_STALE_MS = 3000;
+	private static final String EDT_STALL_PROP = "edt.stall.ms";
+	private static final long DEFAULT_EDT_STALL_MS = 150;
 	private static final String[] DIVISIONS = { "A", "B", "C" };
+	private static final int EVENT_QUEUE_CAPACITY = 4096;
+	private static final int LOG_CAPACITY = 50_000;
+	private static final int LOG_VISIBLE_ROWS = 30;
+	private static final String LOG_PROTOTYPE_ROW = "%1$70s".formatted("");
+	private static final int DRAIN_INTERVAL_MS = 16;	// about one display frame
+	private static final int CLOCK_SUMMARY_INTERVAL_HEARTBEATS = 300;
+	private static final String DROPPED_EVENTS_FMT
+		= "Error: %1$d messages were dropped because the display could not keep up%n";
 
 	// These must match:
-	private static final String SAVED_SESSION_FILENM_FMT = APP_NAME + "Session-%1$s%2$02d-%3$03d.txt";
+	private static final String SESSION_LABEL_FMT = "%1$s%2$02d-%3$03d";
+	private static final String SAVED_SESSION_FILENM_FMT = APP_NAME + "Session-" + SESSION_LABEL_FMT + ".txt";
+	private static final String SAVED_RECORDS_FILENM_FMT = APP_NAME + "Session-" + SESSION_LABEL_FMT
+		+ SessionRecords.FILE_EXTENSION;
 	private static final Pattern SAVED_SESSION_FILENM_PARSER = Pattern
 		.compile(APP_NAME + "Session-([ABC])([0-9]+)-([0-9]+)\\.txt", Pattern.CASE_INSENSITIVE);
 
-	static final PrintStream ERR_LOG;
-
 	private JToolBar toolBar;
 	private JLabel divisionLbl;
 	private JComboBox<String> divisionCombo;
@@ -97,45 +140,149 @@ public final class Photogator extends JFrame
 	private JSpinner teamNumSpinner;
 	private JButton readyBtn;
 	private JButton saveAndClearBtn;
+	private JButton resultsBtn;
 	private JButton settingsBtn;
 	private JButton aboutBtn;
-	private JTextArea log;
+	private EventLogModel logModel;
+	private JList<LogEntry> log;
 	private JScrollPane logScrollPane;
 	private JToolBar statusBar;
 	private JLabel connectedLbl;
 
-	private transient SerialPortReader portRdr = null;
-	private ElapsedTimeComputeMethod computeMethod = ElapsedTimeComputeMethod.FIRST_START_AFTER_READY;
-	private transient BeamBrokenEvent applicableStartEvent = null;
+	private transient EventSource portRdr = null;
+	private transient SerialCapture capture = null;
+	private final transient List<LogEntry> newLogEntries = new ArrayList<>();
+	private final transient List<ArduinoEvent> drainedEvents = new ArrayList<>();
+	private final transient EventJournal journal = new EventJournal(JOURNAL_FILE);
+	private final transient SessionIndex sessionIndex = new SessionIndex(SAVED_SESSION_DIR,
+		SAVED_SESSION_FILENM_PARSER);
+	private final transient SessionWriter sessionWriter = new SessionWriter();
+	private final transient ResultsEngine resultsEngine = new ResultsEngine(SAVED_SESSION_DIR,
+		SAVED_SESSION_FILENM_PARSER);
+	private final transient TimingEngine timingEngine = new TimingEngine(
+		ElapsedTimeComputeMethod.FIRST_START_AFTER_READY, new TimingListener()
+		{
+			@Override
+			public void onResult(TimingResult result)
+			{
+				newLogEntries.add(new LogEntry.Result(result));
+				TimingResultEvent jfrEvt = new TimingResultEvent();
+				if (jfrEvt.shouldCommit())
+				{
+					jfrEvt.elapsedMs = result.elapsedMs();
+					jfrEvt.startSeqNum = result.startEvent().getSeqNum();
+					jfrEvt.finishSeqNum = result.finishEvent().getSeqNum();
+					jfrEvt.gateCount = result.gateEvents().size();
+					jfrEvt.commit();
+				}
+			}
+
+			@Override
+			public void onSplit(BeamBrokenEvent previousEvt, BeamBrokenEvent evt)
+			{
+				newLogEntries.add(new LogEntry.Split(previousEvt, evt));
+			}
+
+			@Override
+			public void onUnmatched(BeamBrokenEvent evt, UnmatchedReason reason)
+			{
+				newLogEntries.add(new LogEntry.Unmatched(evt, reason));
+			}
+		});
 	private boolean isLogDirty = false;
 
+	// Hands events from the serial port's thread to the EDT:
+	private final transient SpscRingBuffer<ArduinoEvent> eventQueue = new SpscRingBuffer<>(EVENT_QUEUE_CAPACITY);
+	private final transient AtomicBoolean drainPending = new AtomicBoolean(false);
+	private final transient AtomicLong droppedEventCount = new AtomicLong(0);
+	private final transient AtomicReference<HeartBeatEvent> latestHeartBeat = new AtomicReference<>();
+	private final transient PipelineMetrics metrics = new PipelineMetrics();
+	private final transient EdtWatchdog edtWatchdog = new EdtWatchdog(
+		getMillisProperty(EDT_STALL_PROP, DEFAULT_EDT_STALL_MS), metrics);
+	private Timer drainTimer;
+
+	// Accessed only on the serial port's thread:
+	private final transient ArduinoClock arduinoClock = new ArduinoClock();
+	private final transient EventLossTracker lossTracker = new EventLossTracker(metrics);
+	private transient long heartBeatCount = 0;
+
 	static
 	{
-		var errLog = System.out;
-		try
-		{
-			LOG_FILE.getParentFile().mkdirs();
-			errLog = new PrintStream(LOG_FILE, StandardCharsets.UTF_8);
-		}
-		catch (IOException ex)
-		{
-			ex.printStackTrace(errLog);
-		}
-		ERR_LOG = errLog;
-
 		var osName = System.getProperty("os.name").toLowerCase();
-		ERR_LOG.format("OS name: '%1$s'%n", osName);
+		LOG.info("OS name: '{}'", osName);
 		isWindows = osName.contains("win");
 		isMacOSX = osName.contains("mac");
 
-		ArduinoEvent.registerMsgType(HeartBeatEvent.class);
-		ArduinoEvent.registerMsgType(BeamBrokenEvent.class);
+		configureSensors();
+		ArduinoEvent.registerMsgType(HeartBeatEvent.MSG_PREFIX, HeartBeatEvent::create);
+		ArduinoEvent.registerMsgType(BeamBrokenEvent.MSG_PREFIX, BeamBrokenEvent::create);
+		ArduinoEvent.registerMsgType(OverflowEvent.MSG_PREFIX, OverflowEvent::create);
 	}
 
 	public Photogator()
 	{
 		initComponents();
 		setLogDirty(false);
+		sessionIndex.start();
+		sessionIndex.whenScanned().thenRun(() -> EventQueue.invokeLater(this::updateSaveAndClearBtn));
+		resultsEngine.start();
+		metrics.register();
+		edtWatchdog.start();
+		recoverJournal();
+	}
+
+	// Restores whatever had not been saved when Photogator last exited
+	private void recoverJournal()
+	{
+		newLogEntries.clear();
+		try
+		{
+			int numUnsavedSessions = journal.recoverHeldSessions(Photogator::isSessionSaved);
+			int numRecords = journal.replay(new EventJournal.ReplayHandler()
+			{
+				@Override
+				public void onEvent(ArduinoEvent evt)
+				{
+					processEvent(evt);
+				}
+
+				@Override
+				public void onReady()
+				{
+					timingEngine.ready();
+				}
+
+				@Override
+				public void onComputeMethod(ElapsedTimeComputeMethod computeMethod)
+				{
+					timingEngine.setComputeMethod(computeMethod);
+				}
+			});
+			LOG.info("Recovered {} unsaved records from the journal, including {} sessions whose save never completed",
+				numRecords, numUnsavedSessions);
+
+			// The Arduino resets when the port is opened, so the replayed starts can never finish:
+			timingEngine.abandonRuns();
+			setToolbarStateAccordingToSettings();
+			appendToLog(newLogEntries);
+
+			journal.open();
+			if (numRecords == 0)
+			{
+				journal.startNewSession(timingEngine.getComputeMethod());
+			}
+		}
+		catch (IOException ex)
+		{
+			LOG.error("Unable to open the event journal", ex);
+			msgDlg(JOptionPane.WARNING_MESSAGE, """
+				Unable to open the event journal, so events will not survive a crash.
+				Detailed error message:
+				%1$s
+				%2$s
+				""",
+				ex.getClass().getName(), ex.getMessage());
+		}
 	}
 
 	private void initComponents()
@@ -187,6 +334,9 @@ public final class Photogator extends JFrame
 			"Save the log contents to a file and clear the log (cannot be undone)", this::saveBtnAction);
 		toolBar.add(saveAndClearBtn);
 
+		resultsBtn = createToolbarBtn(null, "Results", "Show each division's leaderboard", this::resultsBtnAction);
+		toolBar.add(resultsBtn);
+
 		toolBar.addSeparator();
 
 		settingsBtn = createToolbarBtn("settings", "Settings", APP_NAME + " settings", this::settingsBtnAction);
@@ -195,10 +345,13 @@ public final class Photogator extends JFrame
 		aboutBtn = createToolbarBtn("about", "About", "About " + APP_NAME, this::aboutBtnAction);
 		toolBar.add(aboutBtn);
 
-		log = new JTextArea(200, 50);
-		log.setText("");
-		log.setEditable(false);
+		logModel = new EventLogModel(LOG_CAPACITY);
+		log = new JList<>(logModel);
+		log.setCellRenderer(new LogEntryRenderer());
 		log.setFont(new Font(Font.MONOSPACED, Font.PLAIN, Math.round(13.0f * getFontScaleFactor())));
+		// A prototype value fixes the cell size, so that only visible rows are laid out:
+		log.setPrototypeCellValue(new LogEntry.Message(LOG_PROTOTYPE_ROW));
+		log.setVisibleRowCount(LOG_VISIBLE_ROWS);
 		logScrollPane = new JScrollPane(log);
 
 		statusBar = new JToolBar(SwingConstants.HORIZONTAL);
@@ -214,6 +367,9 @@ public final class Photogator extends JFrame
 		add(statusBar, BorderLayout.PAGE_END);
 		pack();
 
+		drainTimer = new Timer(DRAIN_INTERVAL_MS, _ -> drainEventQueue());
+		drainTimer.setRepeats(false);
+
 		setToolbarStateAccordingToSettings();
 		setFrameSize();
 
@@ -291,7 +447,7 @@ public final class Photogator extends JFrame
 		URL imageURL = ImagePanel.class.getResource(rsrcPath);
 		if (imageURL == null)
 		{
-			ERR_LOG.format("Unable to find resource '%1$s'%n", rsrcPath);
+			LOG.error("Unable to find resource '{}'", rsrcPath);
 		}
 		else
 		{
@@ -301,7 +457,7 @@ public final class Photogator extends JFrame
 			}
 			catch (IOException ex)
 			{
-				ex.printStackTrace(ERR_LOG);
+				LOG.error("Unable to load resource '{}'", rsrcPath, ex);
 			}
 		}
 		return result;
@@ -315,21 +471,34 @@ public final class Photogator extends JFrame
 	private void setLogDirty(boolean newValue)
 	{
 		isLogDirty = newValue;
-		saveAndClearBtn.setEnabled(isLogDirty);
+		updateSaveAndClearBtn();
+	}
+
+	// Saving needs the next session number, which is not known until the session directory is scanned
+	private void updateSaveAndClearBtn()
+	{
+		saveAndClearBtn.setEnabled(isLogDirty && sessionIndex.isScanned());
 	}
 
 	void windowOpenAction()
 	{
 		try
 		{
+			long discoveryStartTime = System.nanoTime();
+			String discoveryOutcome = "explicit selection";
 			String serialPortName = getExplicitSerialPortSelection();
 			if (serialPortName == null)
 			{
-				InitializationDialog initDlg = new InitializationDialog(this);
+				InitializationDialog initDlg = new InitializationDialog(this, REMEMBERED_PORT.load());
 				if (initDlg.isASerialPortPresent())
 				{
 					initDlg.setVisible(true);
 					serialPortName = initDlg.getFoundSerialPort();
+					if (serialPortName != null)
+					{
+						discoveryOutcome = initDlg.getDiscoveryOutcome().toString();
+						REMEMBERED_PORT.save(serialPortName, elapsedMillisSince(discoveryStartTime));
+					}
 				}
 				else
 				{
@@ -345,15 +514,32 @@ public final class Photogator extends JFrame
 				// User pressed the Exit button in the initialization dialog.
 				dispatchEvent(new WindowEvent(this, WindowEvent.WINDOW_CLOSING));
 			}
+			else if (SimulatedArduino.isSimulationSpec(serialPortName))
+			{
+				portRdr = new SimulatedArduino(serialPortName, this::serialPortRecieveAction);
+				connectedLbl.setText(CONNECTED_MSG_FMT.formatted(serialPortName));
+				LOG.info("Connected to simulated Arduino '{}'", serialPortName);
+			}
+			else if (SerialReplay.isReplaySpec(serialPortName))
+			{
+				portRdr = new SerialReplay(serialPortName, this::serialPortRecieveAction);
+				connectedLbl.setText(CONNECTED_MSG_FMT.formatted(serialPortName));
+				LOG.info("Connected to serial replay '{}'", serialPortName);
+			}
 			else
 			{
-				portRdr = new SerialPortReader(serialPortName, this::serialPortRecieveAction, ERR_LOG);
+				capture = openCapture();
+				portRdr = new SerialPortSupervisor(serialPortName, this::serialPortRecieveAction,
+					status -> EventQueue.invokeLater(() -> connectionStatusAction(status)),
+					getMillisProperty(HEARTBEAT_STALE_PROP, DEFAULT_HEARTBEAT_STALE_MS), capture);
 				connectedLbl.setText(CONNECTED_MSG_FMT.formatted(serialPortName));
+				LOG.info("Connected to serial port '{}' via {} in {} ms", serialPortName,
+					discoveryOutcome, elapsedMillisSince(discoveryStartTime));
 			}
 		}
 		catch (SerialPortException ex)
 		{
-			ex.printStackTrace(ERR_LOG);
+			LOG.error("Unable to open serial port", ex);
 			connectedLbl.setText(NOT_CONNECTED_MSG);
 			msgDlg(JOptionPane.ERROR_MESSAGE, """
 				Unable to open serial port.  Detailed error message:
@@ -362,24 +548,135 @@ public final class Photogator extends JFrame
 				""",
 				ex.getClass().getName(), ex.getMessage());
 		}
+		catch (IllegalArgumentException ex)
+		{
+			LOG.error("Invalid Arduino simulation or replay spec", ex);
+			connectedLbl.setText(NOT_CONNECTED_MSG);
+			msgDlg(JOptionPane.ERROR_MESSAGE, """
+				Invalid Arduino simulation or replay spec.  Detailed error message:
+				%1$s
+				""",
+				ex.getMessage());
+		}
 	}
 
 	void windowClosingAction()
 	{
+		if (portRdr != null)
+		{
+			portRdr.close();
+		}
+		if (capture != null)
+		{
+			capture.close();
+		}
+		sessionWriter.close();
+		journal.close();
+		sessionIndex.close();
+		edtWatchdog.close();
+		metrics.dumpToLog();
+		metrics.unregister();
+		if (CountingAsyncAppender.getDiscardedCount() > 0 || CountingAsyncAppender.getOverflowCount() > 0)
+		{
+			LOG.warn("The log discarded {} low-priority events and dropped about {} more when its queue was full",
+				CountingAsyncAppender.getDiscardedCount(), CountingAsyncAppender.getOverflowCount());
+		}
+	}
+
+	private void connectionStatusAction(ConnectionStatus status)
+	{
+		String statusMsg = switch (status.state()) {
+		case CONNECTED -> RECONNECTED_MSG_FMT.formatted(status.portName(), status.reconnectLatencyMs() / 1000.0);
+		case STALE -> STALE_MSG_FMT.formatted(status.portName(), status.silenceMs() / 1000.0);
+		case RECONNECTING -> RECONNECTING_MSG_FMT.formatted(status.portName());
+		};
+		connectedLbl.setText(statusMsg);
+		connectedLbl.setForeground((status.state() == ConnectionStatus.State.CONNECTED)
+			? null
+			: Color.RED);
+	}
+
+	private static void configureLogDirectory()
+	{
+		if (System.getProperty(LOG_DIR_PROP) == null)
+		{
+			SAVED_SESSION_DIR.mkdirs();
+			System.setProperty(LOG_DIR_PROP, SAVED_SESSION_DIR.getAbsolutePath());
+		}
+	}
+
+	private static long getMillisProperty(String propName, long defaultValue)
+	{
+		String propValue = blankToNull(System.getProperty(propName));
 		try
 		{
-			if (portRdr != null)
-			{
-				portRdr.close();
-			}
+			return (propValue == null)
+				? defaultValue
+				: Long.parseLong(propValue);
 		}
-		catch (SerialPortException ex)
+		catch (NumberFormatException ex)
 		{
-			ex.printStackTrace(ERR_LOG);
+			LOG.warn("Ignoring invalid value '{}' for system property '{}'", propValue, propName);
+			return defaultValue;
 		}
 	}
 
+	private static long elapsedMillisSince(long startNanoTime)
+	{
+		return (System.nanoTime() - startNanoTime) / 1_000_000;
+	}
+
 	private static String getExplicitSerialPortSelection()
+	{
+		return getSetting(SERIAL_PORT_PROP, SERIAL_PORT_ENV_VAR, "serial port");
+	}
+
+	// Returns null if capture is not requested or the capture file cannot be created
+	private static SerialCapture openCapture()
+	{
+		String captureSetting = getSetting(CAPTURE_PROP, CAPTURE_ENV_VAR, "serial capture");
+		if (captureSetting == null)
+		{
+			return null;
+		}
+
+		File captureFile = new File(captureSetting);
+		if (captureFile.isDirectory())
+		{
+			captureFile = new File(captureFile, "%1$sCapture-%2$s%3$s".formatted(APP_NAME,
+				LocalDateTime.now().format(CAPTURE_FILENM_TIME_FMT), SerialCapture.FILE_EXTENSION));
+		}
+		try
+		{
+			return new SerialCapture(captureFile.toPath());
+		}
+		catch (IOException ex)
+		{
+			LOG.error("Unable to create capture file '{}'", captureFile, ex);
+			return null;
+		}
+	}
+
+	private static void configureSensors()
+	{
+		String layoutSpec = getSetting(SENSORS_PROP, SENSORS_ENV_VAR, "sensor layout");
+		if (layoutSpec != null)
+		{
+			try
+			{
+				SensorId.configure(layoutSpec);
+			}
+			catch (IllegalArgumentException ex)
+			{
+				LOG.warn("Using default sensor layout '{}' because '{}' is invalid: {}",
+					SensorId.DEFAULT_LAYOUT_SPEC, layoutSpec, ex.getMessage());
+			}
+		}
+		LOG.info("Course sensors: {}", SensorId.getCourse());
+	}
+
+	// Looks for a setting in the properties file, then the system properties, then the environment
+	private static String getSetting(String propName, String envVarName, String description)
 	{
 		String result = null;
 		if (PROPERTIES_FILE.exists() && PROPERTIES_FILE.isFile())
@@ -389,36 +686,29 @@ public final class Photogator extends JFrame
 				Reader rdr = new InputStreamReader(in, StandardCharsets.UTF_8);)
 			{
 				props.load(rdr);
-				result = blankToNull(props.getProperty(SERIAL_PORT_PROP));
+				result = blankToNull(props.getProperty(propName));
 			}
 			catch (IOException ex)
 			{
-				ex.printStackTrace(ERR_LOG);
+				LOG.warn("Unable to read '{}'", PROPERTIES_FILE.getAbsolutePath(), ex);
 			}
 		}
 
-		if (result != null)
+		String source = "properties file '%1$s'".formatted(PROPERTIES_FILE.getAbsolutePath());
+		if (result == null)
 		{
-			ERR_LOG.format("Got serial port '%1$s' from properties file '%2$s'.%n", result,
-				PROPERTIES_FILE.getAbsolutePath());
+			result = blankToNull(System.getProperty(propName));
+			source = "system properties";
 		}
-		else
+		if (result == null)
 		{
-			result = blankToNull(System.getProperty(SERIAL_PORT_PROP));
+			result = blankToNull(System.getenv(envVarName));
+			source = "environment";
 		}
 
 		if (result != null)
 		{
-			ERR_LOG.format("Got serial port '%1$s' from system properties.%n", result);
-		}
-		else
-		{
-			result = blankToNull(System.getenv(SERIAL_PORT_ENV_VAR));
-		}
-
-		if (result != null)
-		{
-			ERR_LOG.format("Got serial port '%1$s' from environment.%n", result);
+			LOG.info("Got {} '{}' from {}.", description, result, source);
 		}
 		return result;
 	}
@@ -432,12 +722,13 @@ public final class Photogator extends JFrame
 
 	private void readyBtnAction(@SuppressWarnings("unused") ActionEvent evt)
 	{
-		applicableStartEvent = null;
+		timingEngine.ready();
+		journal.appendReady();
 	}
 
 	private void saveBtnAction(@SuppressWarnings("unused") ActionEvent evt)
 	{
-		if (log.getText().isBlank() || !isLogDirty())
+		if (logModel.isEmpty() || !isLogDirty())
 		{
 			msgDlg(JOptionPane.INFORMATION_MESSAGE, "Nothing to save.");
 		}
@@ -447,46 +738,87 @@ public final class Photogator extends JFrame
 				"Saving the display for team %1$s-%2$d and then clearing it", divisionCombo.getSelectedItem(),
 				teamNumSpinner.getValue());
 
-			if (option == JOptionPane.OK_OPTION)
+			if (option == JOptionPane.OK_OPTION && ensureSessionDirExists())
 			{
-				try
+				String division = (String) divisionCombo.getSelectedItem();
+				int teamNum = ((Integer) teamNumSpinner.getValue()).intValue();
+				int sessionNum = sessionIndex.getNextSessionNumber(division, teamNum);
+				sessionIndex.add(division, teamNum, sessionNum);
+
+				// Report starts still pending in the session being saved, not the next one:
+				newLogEntries.clear();
+				timingEngine.reset();
+				appendToLog(newLogEntries);
+
+				String text = logModel.toText();
+				String records = SessionRecords.format(division, teamNum, sessionNum, logModel.snapshot());
+				clearDisplay();
+				File heldJournal = journal.holdForSave(SESSION_LABEL_FMT.formatted(division, teamNum, sessionNum),
+					timingEngine.getComputeMethod());
+				saveDisplay(division, teamNum, sessionNum, text, records, heldJournal);
+			}
+		}
+	}
+
+	/*
+	 * Hands the snapshot of the display to the session writer.  The display is
+	 * cleared right away so the next team can start, so the snapshot and the held
+	 * journal are the only copies until the write completes.  The held journal is
+	 * released only once the write succeeds.  If it fails, the user may retry.
+	 * The records file holds the same session in machine-readable form.
+	 */
+	private void saveDisplay(String division, int teamNum, int sessionNum, String text, String records,
+		File heldJournal)
+	{
+		File newSessionFile = new File(SAVED_SESSION_DIR,
+			SAVED_SESSION_FILENM_FMT.formatted(division, teamNum, sessionNum));
+		File newRecordsFile = new File(SAVED_SESSION_DIR,
+			SAVED_RECORDS_FILENM_FMT.formatted(division, teamNum, sessionNum));
+		sessionWriter.save(Map.of(newSessionFile.toPath(), text, newRecordsFile.toPath(), records))
+			.whenComplete((_, ex) -> EventQueue.invokeLater(() -> {
+				if (ex == null)
 				{
-					saveDisplay();
-					clearDisplay();
-					applicableStartEvent = null;
+					journal.releaseHeld(heldJournal);
+					resultsEngine.addSession(records);
 				}
-				catch (IOException ex)
+				else
 				{
-					ex.printStackTrace(ERR_LOG);
-					msgDlg(JOptionPane.ERROR_MESSAGE, """
-						Unable to save display.  Detailed error message:
-						%1$s
-						%2$s
-						""",
-						ex.getClass().getName(), ex.getMessage());
+					saveFailedAction(division, teamNum, sessionNum, text, records, heldJournal, ex.getCause());
 				}
-			}
-		}
+			}));
 	}
 
-	private void saveDisplay() throws IOException
+	private void saveFailedAction(String division, int teamNum, int sessionNum, String text, String records,
+		File heldJournal, Throwable ex)
 	{
-		if (ensureSessionDirExists())
+		LOG.error("Unable to save the display for team {}-{}", division, teamNum, ex);
+		int option = confirmDlg(JOptionPane.ERROR_MESSAGE, JOptionPane.OK_CANCEL_OPTION, """
+			Unable to save the display for team %1$s-%2$d.  Detailed error message:
+			%3$s
+			%4$s
+
+			Press OK to try again, or Cancel to discard it.
+			""",
+			division, teamNum, ex.getClass().getName(), ex.getMessage());
+		if (option == JOptionPane.OK_OPTION)
 		{
-			String division = (String) divisionCombo.getSelectedItem();
-			int teamNum = ((Integer) teamNumSpinner.getValue()).intValue();
-			int sessionNum = getNextSessionNumber(division, teamNum);
-			File newSessionFile = new File(SAVED_SESSION_DIR,
-				SAVED_SESSION_FILENM_FMT.formatted(division, teamNum, sessionNum));
-			try (BufferedWriter wtr = Files.newBufferedWriter(newSessionFile.toPath(), StandardCharsets.UTF_8,
-				StandardOpenOption.CREATE_NEW))
-			{
-				wtr.write(log.getText());
-			}
-			setLogDirty(false);
+			saveDisplay(division, teamNum, sessionNum, text, records, heldJournal);
+		}
+		else
+		{
+			journal.discardHeld(heldJournal);
+			sessionIndex.remove(division, teamNum, sessionNum);
 		}
 	}
 
+	// A session is saved once both of its files have been written
+	private static boolean isSessionSaved(String sessionLabel)
+	{
+		String stem = APP_NAME + "Session-" + sessionLabel;
+		return new File(SAVED_SESSION_DIR, stem + ".txt").isFile()
+			&& new File(SAVED_SESSION_DIR, stem + SessionRecords.FILE_EXTENSION).isFile();
+	}
+
 	private static boolean ensureSessionDirExists()
 	{
 		boolean sessionDirExists = false;
@@ -512,36 +844,32 @@ public final class Photogator extends JFrame
 		return sessionDirExists;
 	}
 
-	private static int getNextSessionNumber(String division, int teamNum)
-	{
-		return 1 + Stream.of(SAVED_SESSION_DIR.listFiles())
-			.filter(File::isFile)
-			.map(f -> SAVED_SESSION_FILENM_PARSER.matcher(f.getName()))
-			.filter(Matcher::matches)
-			.filter(m -> division.equalsIgnoreCase(m.group(1)))
-			.filter(m -> teamNum == Integer.parseInt(m.group(2)))
-			.map(m -> Integer.parseInt(m.group(3)))
-			.max(Integer::compare)
-			.orElse(-1);
-	}
-
 	private void clearDisplay()
 	{
-		log.setText("");
-		log.setCaretPosition(0);
+		logModel.clear();
 		setLogDirty(false);
 	}
 
 	void settingsBtnAction(@SuppressWarnings("unused") ActionEvent evt)
 	{
-		SettingsDialog dlg = new SettingsDialog(this, computeMethod);
-		computeMethod = dlg.getElapsedTimeComputeMethod();
+		SettingsDialog dlg = new SettingsDialog(this, timingEngine.getComputeMethod());
+		if (dlg.getElapsedTimeComputeMethod() != timingEngine.getComputeMethod())
+		{
+			timingEngine.setComputeMethod(dlg.getElapsedTimeComputeMethod());
+			journal.appendComputeMethod(timingEngine.getComputeMethod());
+		}
 		setToolbarStateAccordingToSettings();
 	}
 
 	private void setToolbarStateAccordingToSettings()
 	{
-		readyBtn.setEnabled(computeMethod == ElapsedTimeComputeMethod.FIRST_START_AFTER_READY);
+		readyBtn.setEnabled(timingEngine.getComputeMethod() == ElapsedTimeComputeMethod.FIRST_START_AFTER_READY);
+	}
+
+	private void resultsBtnAction(@SuppressWarnings("unused") ActionEvent evt)
+	{
+		@SuppressWarnings("unused")
+		ResultsDialog dlg = new ResultsDialog(this, resultsEngine, DIVISIONS);
 	}
 
 	void aboutBtnAction(@SuppressWarnings("unused") ActionEvent evt)
@@ -550,64 +878,135 @@ public final class Photogator extends JFrame
 		AboutDialog dlg = new AboutDialog(this);
 	}
 
-	private void serialPortRecieveAction(String msg)
+	// Runs on the serial port's event thread:
+	private void serialPortRecieveAction(SerialFrame msg)
 	{
 		ArduinoEvent evt = ArduinoEvent.parse(msg);
 		if (evt == null)
 		{
-			appendToLog("Error: Unrecognized message format:  \"%1$s\"%n".formatted(msg));
+			evt = new UnrecognizedMsgEvent(msg);
 		}
-		else
+		evt.setArrivalNanoTime(msg.getArrivalNanoTime());
+		metrics.record(PipelineMetrics.Stage.FRAME, msg.getCompleteNanoTime() - msg.getArrivalNanoTime());
+		metrics.record(PipelineMetrics.Stage.PARSE, evt.getHostNanoTime() - msg.getCompleteNanoTime());
+		arduinoClock.observe(evt);
+
+		// Report lost beam breaks ahead of the event that revealed them:
+		SequenceGapEvent gap = lossTracker.observe(evt);
+		if (gap != null)
 		{
-			appendToLog(evt.format());
-			if (evt instanceof BeamBrokenEvent bbEvt)
+			gap.setArrivalNanoTime(msg.getArrivalNanoTime());
+			if (!eventQueue.offer(gap))
 			{
-				if (computeMethod == ElapsedTimeComputeMethod.FIRST_START_AFTER_READY)
-				{
-					if (bbEvt.getSensorId() == SensorId.START && applicableStartEvent == null)
-					{
-						applicableStartEvent = bbEvt;
-					}
-					else if (bbEvt.getSensorId() == SensorId.FINISH && applicableStartEvent != null)
-					{
-						appendToLog(bbEvt.formatDifference(applicableStartEvent));
-						applicableStartEvent = null;
-					}
-				}
-				else if (computeMethod == ElapsedTimeComputeMethod.CONSECUTIVE_START_END_PAIR)
-				{
-					if (bbEvt.getSensorId() == SensorId.START)
-					{
-						applicableStartEvent = bbEvt;
-					}
-					else if (bbEvt.getSensorId() == SensorId.FINISH && applicableStartEvent != null)
-					{
-						appendToLog(bbEvt.formatDifference(applicableStartEvent));
-						applicableStartEvent = null;
-					}
-				}
-				else
-				{
-					throw new IllegalStateException("Unknown compute method '%1$s'".formatted(computeMethod));
-				}
+				droppedEventCount.incrementAndGet();
+			}
+		}
+
+		if (evt instanceof HeartBeatEvent heartBeat)
+		{
+			// Heartbeats have no effect on the display, but they do advance the timing engine's clock
+			latestHeartBeat.set(heartBeat);
+			if (++heartBeatCount % CLOCK_SUMMARY_INTERVAL_HEARTBEATS == 0)
+			{
+				LOG.info(arduinoClock.formatSummary());
 			}
 		}
+		else if (evt instanceof OverflowEvent)
+		{
+			// Only counted in the metrics, because the lost breaks are already displayed as a gap
+		}
+		else if (!eventQueue.offer(evt))
+		{
+			droppedEventCount.incrementAndGet();
+		}
+
+		// Coalesce a burst of events into one drain on the EDT:
+		if (drainPending.compareAndSet(false, true))
+		{
+			drainTimer.start();
+		}
+	}
+
+	private void drainEventQueue()
+	{
+		drainPending.set(false);
+
+		newLogEntries.clear();
+		drainedEvents.clear();
+		long numDropped = droppedEventCount.getAndSet(0);
+		if (numDropped > 0)
+		{
+			newLogEntries.add(new LogEntry.Message(DROPPED_EVENTS_FMT.formatted(numDropped)));
+		}
+		long drainStartTime = System.nanoTime();
+
+		// Taken before polling, so every event that preceded the heartbeat is processed first:
+		HeartBeatEvent heartBeat = latestHeartBeat.getAndSet(null);
+		for (ArduinoEvent evt = eventQueue.poll(); evt != null; evt = eventQueue.poll())
+		{
+			long processStartTime = System.nanoTime();
+			metrics.record(PipelineMetrics.Stage.QUEUE, processStartTime - evt.getHostNanoTime());
+			drainedEvents.add(evt);
+			processEvent(evt);
+			metrics.record(PipelineMetrics.Stage.TIMING, System.nanoTime() - processStartTime);
+		}
+		if (heartBeat != null)
+		{
+			timingEngine.advanceTime(heartBeat);
+		}
+		journal.appendEvents(drainedEvents);
+		appendToLog(newLogEntries);
+		recordRenderLatency(drainStartTime);
+	}
+
+	/*
+	 * The list repaints in an event that appendToLog posted to the EDT, so an
+	 * event posted after it runs once the new rows are on screen.
+	 */
+	private void recordRenderLatency(long drainStartTime)
+	{
+		if (drainedEvents.isEmpty())
+		{
+			return;
+		}
+		long[] arrivalTimes = new long[drainedEvents.size()];
+		for (int i = 0; i < arrivalTimes.length; ++i)
+		{
+			arrivalTimes[i] = drainedEvents.get(i).getArrivalNanoTime();
+		}
+		EventQueue.invokeLater(() -> {
+			long renderedTime = System.nanoTime();
+			metrics.record(PipelineMetrics.Stage.RENDER, renderedTime - drainStartTime);
+			for (long arrivalTime : arrivalTimes)
+			{
+				metrics.record(PipelineMetrics.Stage.END_TO_END, renderedTime - arrivalTime);
+			}
+		});
+	}
+
+	private void processEvent(ArduinoEvent evt)
+	{
+		newLogEntries.add(new LogEntry.Event(evt));
+		if (evt instanceof BeamBrokenEvent bbEvt)
+		{
+			timingEngine.onBeamBroken(bbEvt);
+		}
 	}
 
-	private void appendToLog(String msg)
+	private void appendToLog(List<LogEntry> entries)
 	{
-		if (msg != null && !msg.isBlank())
+		if (!entries.isEmpty())
 		{
-			log.append(msg);
+			logModel.appendAll(entries);
 			setLogDirty(true);
-			log.setCaretPosition(log.getDocument().getLength());
+			log.ensureIndexIsVisible(logModel.getSize() - 1);
 		}
 	}
 
 	public String getSerialPortName() {
 		return (portRdr == null)
 			? "None"
-			: portRdr.getSerialPortName();
+			: portRdr.getName();
 	}
 
 	private void msgDlg(int msgType, String fmt, Object... args)
@@ -644,7 +1043,7 @@ public final class Photogator extends JFrame
 
 	public static void main(String[] args)
 	{
-		ERR_LOG.format("%1$s started at %2$s%n", APP_NAME,
+		LOG.info("{} started at {}", APP_NAME,
 			LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
 
 		try
@@ -668,7 +1067,7 @@ public final class Photogator extends JFrame
 		catch (ClassNotFoundException | InstantiationException | IllegalAccessException
 			| UnsupportedLookAndFeelException ex)
 		{
-			ex.printStackTrace(ERR_LOG);
+			LOG.error("Unable to set look and feel", ex);
 			msgDlg(null, JOptionPane.ERROR_MESSAGE, null, """
 				Unable to set look and feel.  Detailed error message:
 				%1$s
@@ -687,13 +1086,13 @@ public final class Photogator extends JFrame
 	private static float getScreenDPI()
 	{
 		float screenDpi = Toolkit.getDefaultToolkit().getScreenResolution();
-		ERR_LOG.format("Screen resolution, obtained from Toolkit:  %1$g dpi%n", screenDpi);
+		LOG.info("Screen resolution, obtained from Toolkit:  {} dpi", screenDpi);
 		return screenDpi;
 	}
 
 	private static void magnifyAllDefaultFonts(float scaleFactor)
 	{
-		ERR_LOG.format("Magnifying default fonts by a factor of %1$g%n", scaleFactor);
+		LOG.info("Magnifying default fonts by a factor of {}", scaleFactor);
 
 		UIDefaults defaults = UIManager.getDefaults();
 		Map<Object, Font> resizedFonts = defaults.keySet().stream()
@@ -0,0 +1,210 @@
+package org.virginiaso.photogator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Latency histograms for each stage that a message passes through between the
+ * serial port and the display.  Stages are recorded from the timestamps carried
+ * by SerialFrame and ArduinoEvent, so no stage adds more than a System.nanoTime
+ * call.  EDT_STALL is recorded by EdtWatchdog rather than per message.  Beam
+ * breaks lost before reaching the host are counted alongside, as found by
+ * EventLossTracker.  Everything is published over JMX and can be dumped to the
+ * log.
+ */
+public final class PipelineMetrics implements PipelineMetricsMXBean
+{
+	public enum Stage
+	{
+		FRAME("first byte arrival to frame complete"),
+		PARSE("frame complete to event parsed"),
+		QUEUE("event parsed to dequeued on the EDT"),
+		TIMING("timing computation"),
+		RENDER("dequeued to display updated"),
+		END_TO_END("first byte arrival to display updated"),
+		EDT_STALL("EDT stalls longer than the threshold");
+
+		private final String description;
+
+		private Stage(String description)
+		{
+			this.description = description;
+		}
+
+		public String getDescription()
+		{
+			return description;
+		}
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(PipelineMetrics.class);
+	private static final String OBJECT_NAME = "org.virginiaso.photogator:type=PipelineMetrics";
+	private static final String SUMMARY_FMT = "%1$-10s %2$8d  p50 %3$8.3f  p99 %4$8.3f  p99.9 %5$8.3f  max %6$8.3f ms  (%7$s)%n";
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private static final String LOSS_FMT = "Lost beam breaks %1$d (of which firmware queue overflows %2$d)%n";
+
+	private final LatencyHistogram[] histograms;
+	private final LongAdder lostEventCount = new LongAdder();
+	private final LongAdder firmwareOverflowCount = new LongAdder();
+
+	public PipelineMetrics()
+	{
+		histograms = new LatencyHistogram[Stage.values().length];
+		for (int i = 0; i < histograms.length; ++i)
+		{
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	public void record(Stage stage, long nanos)
+	{
+		histograms[stage.ordinal()].record(nanos);
+	}
+
+	// Beam-broken sequence numbers that never arrived
+	public void addLostEvents(long count)
+	{
+		lostEventCount.add(count);
+	}
+
+	// Events the firmware dropped because its queue was full, a subset of the lost events
+	public void addFirmwareOverflows(long count)
+	{
+		firmwareOverflowCount.add(count);
+	}
+
+	public LatencyHistogram getHistogram(Stage stage)
+	{
+		return histograms[stage.ordinal()];
+	}
+
+	public void register()
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException ex)
+		{
+			LOG.warn("Unable to register the pipeline metrics with JMX", ex);
+		}
+	}
+
+	public void unregister()
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException ex)
+		{
+			LOG.debug("Unable to unregister the pipeline metrics from JMX", ex);
+		}
+	}
+
+	@Override
+	public String[] getStageNames()
+	{
+		Stage[] stages = Stage.values();
+		String[] result = new String[stages.length];
+		for (int i = 0; i < stages.length; ++i)
+		{
+			result[i] = stages[i].name();
+		}
+		return result;
+	}
+
+	@Override
+	public long[] getCounts()
+	{
+		long[] result = new long[histograms.length];
+		for (int i = 0; i < histograms.length; ++i)
+		{
+			result[i] = histograms[i].getCount();
+		}
+		return result;
+	}
+
+	@Override
+	public double[] getMedianMillis()
+	{
+		return toMillis(h -> h.getPercentileNanos(50.0));
+	}
+
+	@Override
+	public double[] getP99Millis()
+	{
+		return toMillis(h -> h.getPercentileNanos(99.0));
+	}
+
+	@Override
+	public double[] getMaxMillis()
+	{
+		return toMillis(LatencyHistogram::getMaxNanos);
+	}
+
+	@Override
+	public long getLostEventCount()
+	{
+		return lostEventCount.sum();
+	}
+
+	@Override
+	public long getFirmwareOverflowCount()
+	{
+		return firmwareOverflowCount.sum();
+	}
+
+	private double[] toMillis(ToDoubleFunction<LatencyHistogram> nanosGetter)
+	{
+		double[] result = new double[histograms.length];
+		for (int i = 0; i < histograms.length; ++i)
+		{
+			result[i] = nanosGetter.applyAsDouble(histograms[i]) / NANOS_PER_MILLI;
+		}
+		return result;
+	}
+
+	@Override
+	public String getSummary()
+	{
+		StringBuilder summary = new StringBuilder("Pipeline latency:").append(System.lineSeparator());
+		for (Stage stage : Stage.values())
+		{
+			LatencyHistogram h = getHistogram(stage);
+			summary.append(SUMMARY_FMT.formatted(stage.name(), h.getCount(),
+				h.getPercentileNanos(50.0) / NANOS_PER_MILLI,
+				h.getPercentileNanos(99.0) / NANOS_PER_MILLI,
+				h.getPercentileNanos(99.9) / NANOS_PER_MILLI,
+				h.getMaxNanos() / NANOS_PER_MILLI,
+				stage.getDescription()));
+		}
+		summary.append(LOSS_FMT.formatted(getLostEventCount(), getFirmwareOverflowCount()));
+		return summary.toString();
+	}
+
+	@Override
+	public void dumpToLog()
+	{
+		LOG.info(getSummary());
+	}
+
+	@Override
+	public void reset()
+	{
+		for (LatencyHistogram h : histograms)
+		{
+			h.reset();
+		}
+		lostEventCount.reset();
+		firmwareOverflowCount.reset();
+	}
+}
@@ -0,0 +1,19 @@
+package org.virginiaso.photogator;
+
+/*
+ * The JMX view of PipelineMetrics, e.g., for JConsole or VisualVM.  The array
+ * attributes are parallel to getStageNames().
+ */
+public interface PipelineMetricsMXBean
+{
+	String[] getStageNames();
+	long[] getCounts();
+	double[] getMedianMillis();
+	double[] getP99Millis();
+	double[] getMaxMillis();
+	long getLostEventCount();
+	long getFirmwareOverflowCount();
+	String getSummary();
+	void dumpToLog();
+	void reset();
+}
@@ -0,0 +1,81 @@
+package org.virginiaso.photogator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Remembers the serial port on which the Arduino was last discovered, so that
+ * the next launch can try that port before scanning all of them.  jssc does not
+ * expose USB vendor or product IDs, so the port name is the only identifying
+ * information available.
+ */
+final class RememberedSerialPort
+{
+	private static final Logger LOG = LoggerFactory.getLogger(RememberedSerialPort.class);
+	private static final String SERIAL_PORT_PROP = "serial.port";
+	private static final String LAST_CONNECTED_PROP = "last.connected";
+	private static final String CONNECT_TIME_PROP = "time.to.connect.ms";
+
+	private final File propsFile;
+
+	public RememberedSerialPort(File propertiesFile)
+	{
+		propsFile = propertiesFile;
+	}
+
+	// Returns null if no port has been remembered
+	public String load()
+	{
+		String result = null;
+		if (propsFile.isFile())
+		{
+			Properties props = new Properties();
+			try (InputStream in = new FileInputStream(propsFile);
+				Reader rdr = new InputStreamReader(in, StandardCharsets.UTF_8);)
+			{
+				props.load(rdr);
+				String portName = props.getProperty(SERIAL_PORT_PROP);
+				result = (portName == null || portName.isBlank()) ? null : portName.strip();
+			}
+			catch (IOException ex)
+			{
+				LOG.warn("Unable to read '{}'", propsFile.getAbsolutePath(), ex);
+			}
+		}
+		return result;
+	}
+
+	public void save(String portName, long timeToConnectMs)
+	{
+		Properties props = new Properties();
+		props.setProperty(SERIAL_PORT_PROP, portName);
+		props.setProperty(LAST_CONNECTED_PROP,
+			LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+		props.setProperty(CONNECT_TIME_PROP, Long.toString(timeToConnectMs));
+		propsFile.getParentFile().mkdirs();
+		try (OutputStream out = new FileOutputStream(propsFile);
+			Writer wtr = new OutputStreamWriter(out, StandardCharsets.UTF_8);)
+		{
+			props.store(wtr, "Serial port on which " + Photogator.APP_NAME + " last found the photogates");
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to write '{}'", propsFile.getAbsolutePath(), ex);
+		}
+	}
+}
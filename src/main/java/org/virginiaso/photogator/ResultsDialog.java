@@ -0,0 +1,125 @@
+package org.virginiaso.photogator;
+
+import java.awt.BorderLayout;
+import java.awt.EventQueue;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.KeyStroke;
+import javax.swing.WindowConstants;
+import javax.swing.table.DefaultTableModel;
+
+// Shows the leaderboard of each division, refreshing as sessions are saved
+public final class ResultsDialog extends JDialog
+{
+	private static final long serialVersionUID = 1L;
+	private static final String DIALOG_TITLE = "%1$s Results";
+	private static final String[] COLUMN_NAMES = { "Rank", "Team", "Best (s)", "Mean (s)", "Runs" };
+
+	private final transient ResultsEngine resultsEngine;
+	private final String[] divisions;
+	private final transient Runnable changeListener = () -> EventQueue.invokeLater(this::refresh);
+	private DefaultTableModel[] tableModels;
+	private JTabbedPane tabbedPane;
+	private JButton closeBtn;
+	private Box btnBox;
+
+	public ResultsDialog(Photogator photogator, ResultsEngine resultsEngine, String[] divisions)
+	{
+		super(photogator, DIALOG_TITLE.formatted(Photogator.APP_NAME), false); // false for modeless
+		this.resultsEngine = resultsEngine;
+		this.divisions = divisions.clone();
+		initComponents();
+	}
+
+	private void initComponents()
+	{
+		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowClosed(WindowEvent evt)
+			{
+				resultsEngine.removeChangeListener(changeListener);
+			}
+		});
+
+		tabbedPane = new JTabbedPane();
+		tableModels = new DefaultTableModel[divisions.length];
+		for (int i = 0; i < divisions.length; ++i)
+		{
+			tableModels[i] = new DefaultTableModel(COLUMN_NAMES, 0)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public boolean isCellEditable(int row, int column)
+				{
+					return false;
+				}
+			};
+			tabbedPane.addTab("Division " + divisions[i], new JScrollPane(new JTable(tableModels[i])));
+		}
+		tabbedPane.setBorder(BorderFactory.createEmptyBorder(15, 15, 0, 15));
+
+		closeBtn = new JButton("Close");
+		closeBtn.addActionListener(this::onCloseBtn);
+		closeBtn.setDefaultCapable(true);
+
+		btnBox = Box.createHorizontalBox();
+		btnBox.add(Box.createHorizontalGlue());
+		btnBox.add(closeBtn);
+		btnBox.add(Box.createHorizontalGlue());
+		btnBox.setBorder(BorderFactory.createEmptyBorder(10, 15, 15, 15));
+
+		getRootPane().setDefaultButton(closeBtn);
+		getRootPane().registerKeyboardAction(this::onCloseBtn,
+			KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
+			JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+		getContentPane().add(tabbedPane, BorderLayout.CENTER);
+		getContentPane().add(btnBox, BorderLayout.PAGE_END);
+
+		refresh();
+		resultsEngine.addChangeListener(changeListener);
+		pack();
+		setLocationRelativeTo(getOwner());
+
+		setVisible(true);
+	}
+
+	private void refresh()
+	{
+		for (int i = 0; i < divisions.length; ++i)
+		{
+			List<TeamResult> leaderboard = resultsEngine.getLeaderboard(divisions[i]);
+			tableModels[i].setRowCount(0);
+			for (int rank = 0; rank < leaderboard.size(); ++rank)
+			{
+				TeamResult result = leaderboard.get(rank);
+				tableModels[i].addRow(new Object[] {
+					rank + 1,
+					"%1$s%2$02d".formatted(result.division(), result.teamNum()),
+					"%1$.2f".formatted(result.bestMs() / 1000.0),
+					"%1$.2f".formatted(result.meanMs() / 1000.0),
+					result.runCount() });
+			}
+		}
+	}
+
+	private void onCloseBtn(@SuppressWarnings("unused") ActionEvent evt)
+	{
+		dispose();
+	}
+}
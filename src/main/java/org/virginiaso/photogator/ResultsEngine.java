@@ -0,0 +1,186 @@
+package org.virginiaso.photogator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Per-division leaderboards built from the records files of saved sessions.
+ * At startup the session directory is scanned once, reading the files in
+ * parallel on the fork-join pool.  After that, each saved session is merged in
+ * as it is saved, so the directory is never rescanned.  Each session is counted
+ * at most once, however it arrives.  Sessions saved before records files existed
+ * are read from their display text instead.  Listeners are notified on an arbitrary
+ * thread whenever the standings change.
+ */
+final class ResultsEngine
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ResultsEngine.class);
+
+	private final File sessionDir;
+	private final Pattern fileNameParser;
+	private final Map<String, Map<Integer, TeamResult>> resultsByDivision = new ConcurrentHashMap<>();
+	private final Set<String> countedSessions = ConcurrentHashMap.newKeySet();
+	private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+	// fileNameParser matches session text files, and its groups must capture the division, team, and session
+	public ResultsEngine(File sessionDirectory, Pattern sessionFileNameParser)
+	{
+		sessionDir = sessionDirectory;
+		fileNameParser = sessionFileNameParser;
+	}
+
+	public void start()
+	{
+		Thread.ofVirtual()
+			.name("results-scan")
+			.start(this::scanAll);
+	}
+
+	private void scanAll()
+	{
+		long startTime = System.nanoTime();
+		File[] files = sessionDir.listFiles((_, name) -> name.endsWith(SessionRecords.FILE_EXTENSION)
+			|| isLegacySessionFile(name));
+		int numRuns = Stream.of((files == null) ? new File[0] : files)
+			.parallel()
+			.mapToInt(file -> file.getName().endsWith(SessionRecords.FILE_EXTENSION)
+				? addSessionFile(file.toPath())
+				: addLegacySessionFile(file.toPath()))
+			.sum();
+		LOG.info("Scanned {} session files ({} runs) in {} ms",
+			(files == null) ? 0 : files.length, numRuns, (System.nanoTime() - startTime) / 1_000_000);
+		fireChanged();
+	}
+
+	private int addSessionFile(Path recordsFile)
+	{
+		SessionAccumulator acc = new SessionAccumulator();
+		try
+		{
+			SessionRecords.read(recordsFile, acc);
+			return merge(acc);
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to read session records '{}': {}", recordsFile, ex.getMessage());
+			return 0;
+		}
+	}
+
+	// A session text file with no records file beside it
+	private boolean isLegacySessionFile(String fileName)
+	{
+		int dot = fileName.lastIndexOf('.');
+		return fileNameParser.matcher(fileName).matches()
+			&& !new File(sessionDir, fileName.substring(0, (dot < 0) ? fileName.length() : dot)
+				+ SessionRecords.FILE_EXTENSION).exists();
+	}
+
+	private int addLegacySessionFile(Path textFile)
+	{
+		Matcher m = fileNameParser.matcher(textFile.getFileName().toString());
+		if (!m.matches())
+		{
+			return 0;
+		}
+		SessionAccumulator acc = new SessionAccumulator();
+		try
+		{
+			SessionRecords.readLegacyText(textFile, m.group(1), Integer.parseInt(m.group(2)),
+				Integer.parseInt(m.group(3)), acc);
+			return merge(acc);
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to read legacy session '{}': {}", textFile, ex.getMessage());
+			return 0;
+		}
+	}
+
+	// Merges in a session that has just been saved
+	public void addSession(String records)
+	{
+		SessionAccumulator acc = new SessionAccumulator();
+		SessionRecords.read(records, acc);
+		if (merge(acc) > 0)
+		{
+			fireChanged();
+		}
+	}
+
+	private int merge(SessionAccumulator acc)
+	{
+		if (acc.teamResult == null || !countedSessions.add(acc.sessionKey))
+		{
+			return 0;
+		}
+		resultsByDivision.computeIfAbsent(acc.teamResult.division(), _ -> new ConcurrentHashMap<>())
+			.merge(acc.teamResult.teamNum(), acc.teamResult, TeamResult::plus);
+		return acc.teamResult.runCount();
+	}
+
+	// The division's teams, best first
+	public List<TeamResult> getLeaderboard(String division)
+	{
+		Map<Integer, TeamResult> teams = resultsByDivision.get(division.toUpperCase(Locale.ROOT));
+		return (teams == null)
+			? List.of()
+			: teams.values().stream().sorted(TeamResult.RANKING).toList();
+	}
+
+	public void addChangeListener(Runnable listener)
+	{
+		changeListeners.add(listener);
+	}
+
+	public void removeChangeListener(Runnable listener)
+	{
+		changeListeners.remove(listener);
+	}
+
+	private void fireChanged()
+	{
+		changeListeners.forEach(Runnable::run);
+	}
+
+	private static final class SessionAccumulator implements SessionRecords.Handler
+	{
+		private String division;
+		private int teamNum;
+		private String sessionKey;
+		private TeamResult teamResult;
+
+		@Override
+		public void onSession(String sessionDivision, int sessionTeamNum, int sessionNum)
+		{
+			division = sessionDivision.toUpperCase(Locale.ROOT);
+			teamNum = sessionTeamNum;
+			sessionKey = division + teamNum + "-" + sessionNum;
+		}
+
+		@Override
+		public void onResult(long elapsedMs, long startSeqNum, long finishSeqNum, long[] splitsMs)
+		{
+			if (sessionKey != null)
+			{
+				TeamResult run = TeamResult.ofRun(division, teamNum, elapsedMs);
+				teamResult = (teamResult == null)
+					? run
+					: teamResult.plus(run);
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package org.virginiaso.photogator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The gates crossed so far by one run, indexed by course position.  Instances
+ * are reused from run to run so that tracking a run allocates nothing until it
+ * finishes.
+ */
+final class RunInProgress
+{
+	private final BeamBrokenEvent[] gateEvents;
+	private int lastPosition;
+
+	RunInProgress()
+	{
+		gateEvents = new BeamBrokenEvent[SensorId.getCourseLength()];
+		lastPosition = -1;
+	}
+
+	public boolean isStarted()
+	{
+		return lastPosition >= 0;
+	}
+
+	public BeamBrokenEvent getStartEvent()
+	{
+		return gateEvents[0];
+	}
+
+	public void start(BeamBrokenEvent startEvt)
+	{
+		clear();
+		gateEvents[0] = startEvt;
+		lastPosition = 0;
+	}
+
+	// Whether this run can record a crossing of the event's gate, i.e., it has not yet passed that gate
+	public boolean accepts(BeamBrokenEvent evt)
+	{
+		return isStarted() && evt.getSensorId().getPosition() > lastPosition;
+	}
+
+	// Records an intermediate or finish gate, reporting the split if the course has intermediate gates
+	public void record(BeamBrokenEvent evt, TimingListener listener)
+	{
+		BeamBrokenEvent previousEvt = gateEvents[lastPosition];
+		lastPosition = evt.getSensorId().getPosition();
+		gateEvents[lastPosition] = evt;
+		if (gateEvents.length > 2)
+		{
+			listener.onSplit(previousEvt, evt);
+		}
+	}
+
+	public TimingResult toResult()
+	{
+		List<BeamBrokenEvent> crossed = new ArrayList<>(gateEvents.length);
+		for (BeamBrokenEvent evt : gateEvents)
+		{
+			if (evt != null)
+			{
+				crossed.add(evt);
+			}
+		}
+		return new TimingResult(crossed);
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i <= lastPosition; ++i)
+		{
+			gateEvents[i] = null;
+		}
+		lastPosition = -1;
+	}
+}
@@ -1,31 +1,150 @@
 package org.virginiaso.photogator;
 
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.List;
 
-public enum SensorId
+/*
+ * A photogate sensor:  the Arduino pin it is wired to, its display name, and
+ * its position along the course.  The first sensor on the course starts a run
+ * and the last finishes it; any in between record split times.  The course
+ * layout defaults to a start gate on pin 2 and a finish gate on pin 3, and can
+ * be reconfigured with a spec such as "2:Start, 18:Gate 2, 19:Gate 3, 3:Finish",
+ * which lists the sensors in course order.
+ */
+public final class SensorId
 {
-	START(2, "Start "),	// Pin 2 on the Arduino
-	FINISH(3, "Finish");	// Pin 3 on the Arduino
+	public static final String DEFAULT_LAYOUT_SPEC = "2:Start, 3:Finish";
 
-	private final long sensorIdNum;
+	private static volatile SensorId[] byIdNum;
+	private static volatile List<SensorId> course;
+
+	private final int sensorIdNum;
 	private final String sensorName;
+	private final int position;
+	private final boolean isLast;
+	private String paddedName;
+
+	static
+	{
+		configure(DEFAULT_LAYOUT_SPEC);
+	}
+
+	// Replaces the course layout.  Call before any events are parsed.
+	public static synchronized void configure(String layoutSpec)
+	{
+		List<String[]> entries = new ArrayList<>();
+		for (String entry : layoutSpec.split(","))
+		{
+			String[] pinAndName = entry.split(":", 2);
+			if (pinAndName.length != 2 || pinAndName[0].isBlank() || pinAndName[1].isBlank())
+			{
+				throw new IllegalArgumentException("Invalid sensor specification \"%1$s\"".formatted(entry));
+			}
+			entries.add(pinAndName);
+		}
+		if (entries.size() < 2)
+		{
+			throw new IllegalArgumentException("A course needs at least a start and a finish sensor");
+		}
+
+		List<SensorId> newCourse = new ArrayList<>();
+		int maxIdNum = 0;
+		int maxNameLen = 0;
+		for (String[] pinAndName : entries)
+		{
+			int idNum = Integer.parseInt(pinAndName[0].strip());
+			String name = pinAndName[1].strip();
+			if (idNum < 0 || newCourse.stream().anyMatch(id -> id.sensorIdNum == idNum))
+			{
+				throw new IllegalArgumentException("Invalid or duplicate sensor pin %1$d".formatted(idNum));
+			}
+			newCourse.add(new SensorId(idNum, name, newCourse.size(), newCourse.size() == entries.size() - 1));
+			maxIdNum = Math.max(maxIdNum, idNum);
+			maxNameLen = Math.max(maxNameLen, name.length());
+		}
+
+		String paddedNameFmt = "%-" + maxNameLen + "s";
+		SensorId[] newById = new SensorId[maxIdNum + 1];
+		for (SensorId id : newCourse)
+		{
+			id.paddedName = paddedNameFmt.formatted(id.sensorName);
+			newById[id.sensorIdNum] = id;
+		}
+		byIdNum = newById;
+		course = List.copyOf(newCourse);
+	}
 
 	public static SensorId getById(long idNum)
 	{
-		return Stream.of(SensorId.values())
-			.filter(id -> (id.sensorIdNum == idNum))
-			.findAny()
-			.orElseThrow(() -> new IllegalArgumentException(
-				"Unrecognized sensor ID number: \"%1$d\"".formatted(idNum)));
+		SensorId result = findById(idNum);
+		if (result == null)
+		{
+			throw new IllegalArgumentException("Unrecognized sensor ID number: \"%1$d\"".formatted(idNum));
+		}
+		return result;
 	}
 
-	private SensorId(long idNum, String name)
+	// Returns null if idNum is not recognized
+	public static SensorId findById(long idNum)
+	{
+		SensorId[] table = byIdNum;
+		return (idNum >= 0 && idNum < table.length)
+			? table[(int) idNum]
+			: null;
+	}
+
+	// All sensors, in course order
+	public static List<SensorId> getCourse()
+	{
+		return course;
+	}
+
+	public static int getCourseLength()
+	{
+		return course.size();
+	}
+
+	private SensorId(int idNum, String name, int coursePosition, boolean isLastOnCourse)
 	{
 		sensorIdNum = idNum;
 		sensorName = name;
+		position = coursePosition;
+		isLast = isLastOnCourse;
 	}
 
+	public int getIdNum()
+	{
+		return sensorIdNum;
+	}
+
+	// Padded to the width of the longest name, so that log lines align
 	public String getName()
+	{
+		return paddedName;
+	}
+
+	public String getUnpaddedName()
+	{
+		return sensorName;
+	}
+
+	public int getPosition()
+	{
+		return position;
+	}
+
+	public boolean isStart()
+	{
+		return position == 0;
+	}
+
+	public boolean isFinish()
+	{
+		return isLast;
+	}
+
+	@Override
+	public String toString()
 	{
 		return sensorName;
 	}
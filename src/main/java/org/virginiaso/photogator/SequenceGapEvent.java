@@ -0,0 +1,69 @@
+package org.virginiaso.photogator;
+
+import org.virginiaso.serialport.ArduinoEvent;
+
+/*
+ * Synthesized by the host, not sent by the Arduino:  a run of beam-broken
+ * sequence numbers that never arrived.  It has a message form only so that the
+ * event journal can record and replay it like any other event.  Only the
+ * journal parses that form; it is never registered with ArduinoEvent.
+ */
+public class SequenceGapEvent extends ArduinoEvent
+{
+	public static final String MSG_PREFIX = "SequenceGap:";
+	private static final String SINGLE_FMT = "Error: Beam-broken event #%1$d was lost%n";
+	private static final String RANGE_FMT = "Error: Beam-broken events #%1$d to #%2$d were lost%n";
+
+	private final long firstMissingSeqNum;
+	private final long lastMissingSeqNum;
+
+	// Parses "<first missing seqNum>,<last missing seqNum>"
+	public static SequenceGapEvent create(CharSequence msg, int fieldsStart)
+	{
+		int comma = indexOf(msg, ',', fieldsStart);
+		if (comma < 0)
+		{
+			return null;
+		}
+		long first = parseUnsignedDecimal(msg, fieldsStart, comma);
+		long last = parseUnsignedDecimal(msg, comma + 1, msg.length());
+		return (first < 0 || last < first)
+			? null
+			: new SequenceGapEvent(first, last);
+	}
+
+	public SequenceGapEvent(long firstMissingSeqNum, long lastMissingSeqNum)
+	{
+		this.firstMissingSeqNum = firstMissingSeqNum;
+		this.lastMissingSeqNum = lastMissingSeqNum;
+	}
+
+	public long getFirstMissingSeqNum()
+	{
+		return firstMissingSeqNum;
+	}
+
+	public long getLastMissingSeqNum()
+	{
+		return lastMissingSeqNum;
+	}
+
+	public long getMissingCount()
+	{
+		return lastMissingSeqNum - firstMissingSeqNum + 1;
+	}
+
+	@Override
+	public String format()
+	{
+		return (firstMissingSeqNum == lastMissingSeqNum)
+			? SINGLE_FMT.formatted(firstMissingSeqNum)
+			: RANGE_FMT.formatted(firstMissingSeqNum, lastMissingSeqNum);
+	}
+
+	@Override
+	public String formatMsg()
+	{
+		return MSG_PREFIX + firstMissingSeqNum + "," + lastMissingSeqNum;
+	}
+}
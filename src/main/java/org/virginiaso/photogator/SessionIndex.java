@@ -0,0 +1,220 @@
+package org.virginiaso.photogator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * An in-memory index of the saved session numbers of each (division, team),
+ * built once in the background and then kept current by a WatchService, so that
+ * finding the next session number does not rescan the session directory.  Files
+ * added or deleted outside of Photogator are picked up by the watcher.
+ *
+ * Session numbers handed out by add() are also kept as reservations until the
+ * watcher sees their file, so that a rescan, which builds a new map and swaps it
+ * in whole, cannot lose a session whose save is still in progress.  Only the
+ * watcher thread modifies the map from the directory, so rescans and watch
+ * events never interleave.
+ */
+final class SessionIndex implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SessionIndex.class);
+
+	private final File sessionDir;
+	private final Pattern fileNameParser;
+	private final Map<String, NavigableSet<Integer>> reservationsByTeam = new ConcurrentHashMap<>();
+	private volatile Map<String, NavigableSet<Integer>> sessionsByTeam = new ConcurrentHashMap<>();
+	private final CompletableFuture<Void> initialScan = new CompletableFuture<>();
+	private volatile WatchService watcher;
+
+	// fileNameParser's groups must capture the division, team number, and session number
+	public SessionIndex(File sessionDirectory, Pattern sessionFileNameParser)
+	{
+		sessionDir = sessionDirectory;
+		fileNameParser = sessionFileNameParser;
+	}
+
+	public void start()
+	{
+		Thread.ofVirtual()
+			.name("session-index")
+			.start(this::buildAndWatch);
+	}
+
+	private void buildAndWatch()
+	{
+		try
+		{
+			sessionDir.mkdirs();
+			Path dirPath = sessionDir.toPath();
+
+			// Register before scanning, so that no change falls between the two:
+			watcher = FileSystems.getDefault().newWatchService();
+			dirPath.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.OVERFLOW);
+			rescan();
+			initialScan.complete(null);
+			watch(dirPath);
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to watch session directory '{}'", sessionDir.getAbsolutePath(), ex);
+			rescan();
+			initialScan.complete(null);
+		}
+		catch (ClosedWatchServiceException ex)
+		{
+			// The index was closed
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void watch(Path dirPath) throws InterruptedException
+	{
+		for (;;)
+		{
+			WatchKey key = watcher.take();
+			for (WatchEvent<?> evt : key.pollEvents())
+			{
+				if (evt.kind() == StandardWatchEventKinds.OVERFLOW)
+				{
+					rescan();
+				}
+				else if (evt.context() instanceof Path fileName)
+				{
+					Matcher m = fileNameParser.matcher(fileName.toString());
+					if (!m.matches())
+					{
+						// Not a session file
+					}
+					else if (evt.kind() == StandardWatchEventKinds.ENTRY_CREATE)
+					{
+						addSavedSession(sessionsByTeam, m);
+						teamSessions(reservationsByTeam, m).remove(Integer.valueOf(m.group(3)));
+					}
+					else if (!dirPath.resolve(fileName).toFile().exists())
+					{
+						teamSessions(sessionsByTeam, m).remove(Integer.valueOf(m.group(3)));
+					}
+				}
+			}
+			if (!key.reset())
+			{
+				LOG.warn("Session directory '{}' is no longer watched", sessionDir.getAbsolutePath());
+				return;
+			}
+		}
+	}
+
+	// Builds a new map from the directory and swaps it in, so readers never see a partial one
+	private void rescan()
+	{
+		File[] files = sessionDir.listFiles();
+		Map<String, NavigableSet<Integer>> newSessionsByTeam = new ConcurrentHashMap<>();
+		Stream.of((files == null) ? new File[0] : files)
+			.filter(File::isFile)
+			.map(f -> fileNameParser.matcher(f.getName()))
+			.filter(Matcher::matches)
+			.forEach(m -> addSavedSession(newSessionsByTeam, m));
+		reservationsByTeam.forEach((team, reserved) -> newSessionsByTeam
+			.computeIfAbsent(team, _ -> new ConcurrentSkipListSet<>())
+			.addAll(reserved));
+		sessionsByTeam = newSessionsByTeam;
+	}
+
+	private static void addSavedSession(Map<String, NavigableSet<Integer>> map, Matcher m)
+	{
+		teamSessions(map, m).add(Integer.valueOf(m.group(3)));
+	}
+
+	// Reserves a session number as soon as its save starts, rather than waiting for the watcher
+	public void add(String division, int teamNum, int sessionNum)
+	{
+		teamSessions(reservationsByTeam, division, teamNum).add(sessionNum);
+		teamSessions(sessionsByTeam, division, teamNum).add(sessionNum);
+	}
+
+	// Releases a session number that was reserved by add() but never saved
+	public void remove(String division, int teamNum, int sessionNum)
+	{
+		teamSessions(reservationsByTeam, division, teamNum).remove(sessionNum);
+		teamSessions(sessionsByTeam, division, teamNum).remove(sessionNum);
+	}
+
+	// Completes once the startup scan has finished, after which lookups never block
+	public CompletableFuture<Void> whenScanned()
+	{
+		return initialScan.copy();
+	}
+
+	public boolean isScanned()
+	{
+		return initialScan.isDone();
+	}
+
+	/*
+	 * Consults the reservations too, in case one was made while a rescan was
+	 * being swapped in.  Blocks until the startup scan finishes, so the EDT
+	 * should call this only once isScanned() is true.
+	 */
+	public int getNextSessionNumber(String division, int teamNum)
+	{
+		initialScan.join();
+		NavigableSet<Integer> sessions = teamSessions(sessionsByTeam, division, teamNum);
+		NavigableSet<Integer> reserved = teamSessions(reservationsByTeam, division, teamNum);
+		int lastSession = Math.max(
+			sessions.isEmpty() ? -1 : sessions.last(),
+			reserved.isEmpty() ? -1 : reserved.last());
+		return lastSession + 1;
+	}
+
+	private static NavigableSet<Integer> teamSessions(Map<String, NavigableSet<Integer>> map, Matcher m)
+	{
+		return teamSessions(map, m.group(1), Integer.parseInt(m.group(2)));
+	}
+
+	private static NavigableSet<Integer> teamSessions(Map<String, NavigableSet<Integer>> map, String division,
+		int teamNum)
+	{
+		return map.computeIfAbsent(division.toUpperCase(Locale.ROOT) + teamNum,
+			_ -> new ConcurrentSkipListSet<>());
+	}
+
+	@Override
+	public void close()
+	{
+		WatchService w = watcher;
+		if (w != null)
+		{
+			try
+			{
+				w.close();
+			}
+			catch (IOException ex)
+			{
+				LOG.warn("Unable to close the session directory watcher", ex);
+			}
+		}
+	}
+}
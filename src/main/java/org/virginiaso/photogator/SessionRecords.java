@@ -0,0 +1,260 @@
+package org.virginiaso.photogator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * A machine-readable companion to the text of a saved session, so that tools
+ * can aggregate results without scraping the display text.  Each line is one
+ * tab-separated record, keyed by its first field:
+ *
+ *    S <division> <team> <session number> <format version>
+ *    B <seq> <sensor name> <sensor pin> <Arduino ms> <timeline ms> <wall clock epoch ms>
+ *    T <elapsed ms> <start seq> <finish seq> [<split ms>...]
+ *    U <seq> <reason>
+ *
+ * The S record comes first.  Records the reader does not recognize are skipped,
+ * so new kinds can be added without breaking older readers.
+ *
+ * Sessions saved before records files existed have only their display text,
+ * from which readLegacyText() recovers the elapsed times.
+ */
+public final class SessionRecords
+{
+	public interface Handler
+	{
+		void onSession(String division, int teamNum, int sessionNum);
+
+		default void onBeamBroken(long seqNum, String sensorName, int sensorPin, long arduinoTime,
+			long timelineTime, long wallClockEpochMs)
+		{
+			// Nothing to do
+		}
+
+		default void onResult(long elapsedMs, long startSeqNum, long finishSeqNum, long[] splitsMs)
+		{
+			// Nothing to do
+		}
+
+		default void onUnmatched(long seqNum, TimingListener.UnmatchedReason reason)
+		{
+			// Nothing to do
+		}
+	}
+
+	public static final String FILE_EXTENSION = ".tsv";
+
+	private static final int FORMAT_VERSION = 1;
+	private static final char SESSION_RECORD = 'S';
+	private static final char BEAM_BROKEN_RECORD = 'B';
+	private static final char RESULT_RECORD = 'T';
+	private static final char UNMATCHED_RECORD = 'U';
+	private static final char SEP = '\t';
+	private static final long[] NO_SPLITS = new long[0];
+	// Matches BeamBrokenEvent's DIFFERENCE_FMT, whose decimal separator depends on the locale:
+	private static final Pattern LEGACY_RESULT_PARSER = Pattern
+		.compile("\\s*(-?[0-9]+)[.,]([0-9]{2}) seconds \\(#([0-9]+) to #([0-9]+)\\)\\s*");
+
+	private SessionRecords()
+	{
+	}
+
+	public static String format(String division, int teamNum, int sessionNum, List<LogEntry> entries)
+	{
+		ZoneId zone = ZoneId.systemDefault();
+		StringBuilder text = new StringBuilder(64 * (entries.size() + 1));
+		text.append(SESSION_RECORD).append(SEP).append(division).append(SEP).append(teamNum)
+			.append(SEP).append(sessionNum).append(SEP).append(FORMAT_VERSION).append('\n');
+		for (LogEntry entry : entries)
+		{
+			switch (entry)
+			{
+				case LogEntry.Event(BeamBrokenEvent evt) -> text.append(BEAM_BROKEN_RECORD)
+					.append(SEP).append(evt.getSeqNum())
+					.append(SEP).append(evt.getSensorId().getUnpaddedName())
+					.append(SEP).append(evt.getSensorId().getIdNum())
+					.append(SEP).append(evt.getArduinoTime())
+					.append(SEP).append(evt.getTimelineTime())
+					.append(SEP).append(evt.getWallClockTime().atZone(zone).toInstant().toEpochMilli())
+					.append('\n');
+				case LogEntry.Result(TimingResult result) ->
+				{
+					text.append(RESULT_RECORD)
+						.append(SEP).append(result.elapsedMs())
+						.append(SEP).append(result.startEvent().getSeqNum())
+						.append(SEP).append(result.finishEvent().getSeqNum());
+					for (int i = 1; i < result.gateEvents().size(); ++i)
+					{
+						text.append(SEP).append(result.splitMs(i));
+					}
+					text.append('\n');
+				}
+				case LogEntry.Unmatched(BeamBrokenEvent evt, TimingListener.UnmatchedReason reason) -> text
+					.append(UNMATCHED_RECORD)
+					.append(SEP).append(evt.getSeqNum())
+					.append(SEP).append(reason.name())
+					.append('\n');
+				default ->
+				{
+					// Splits are repeated in the T record, and other entries carry no results
+				}
+			}
+		}
+		return text.toString();
+	}
+
+	// Returns the number of records read.  Malformed records are skipped.
+	public static int read(Path recordsFile, Handler handler) throws IOException
+	{
+		try (BufferedReader rdr = Files.newBufferedReader(recordsFile, StandardCharsets.UTF_8))
+		{
+			return read(rdr, handler);
+		}
+	}
+
+	public static int read(String records, Handler handler)
+	{
+		try (BufferedReader rdr = new BufferedReader(new StringReader(records)))
+		{
+			return read(rdr, handler);
+		}
+		catch (IOException ex)
+		{
+			throw new UncheckedIOException(ex);	// Cannot happen when reading a string
+		}
+	}
+
+	/*
+	 * Reads the elapsed times from the display text of a session saved before
+	 * records files existed.  The text does not identify the session, so the
+	 * caller supplies that, e.g., from the file name.  The times have only the
+	 * display's precision of hundredths of a second.  Returns the number of
+	 * results read.
+	 */
+	public static int readLegacyText(Path textFile, String division, int teamNum, int sessionNum,
+		Handler handler) throws IOException
+	{
+		handler.onSession(division, teamNum, sessionNum);
+		int numResults = 0;
+		// ISO-8859-1 never fails to decode, whatever the text was written in:
+		try (BufferedReader rdr = Files.newBufferedReader(textFile, StandardCharsets.ISO_8859_1))
+		{
+			for (String line = rdr.readLine(); line != null; line = rdr.readLine())
+			{
+				Matcher m = LEGACY_RESULT_PARSER.matcher(line);
+				if (m.matches())
+				{
+					long wholeSeconds = Long.parseLong(m.group(1));
+					long hundredths = Long.parseLong(m.group(2));
+					long elapsedMs = wholeSeconds * 1000
+						+ (m.group(1).startsWith("-") ? -hundredths : hundredths) * 10;
+					handler.onResult(elapsedMs, Long.parseLong(m.group(3)), Long.parseLong(m.group(4)), NO_SPLITS);
+					++numResults;
+				}
+			}
+		}
+		return numResults;
+	}
+
+	private static int read(BufferedReader rdr, Handler handler) throws IOException
+	{
+		int numRecords = 0;
+		for (String line = rdr.readLine(); line != null; line = rdr.readLine())
+		{
+			if (parseRecord(line, handler))
+			{
+				++numRecords;
+			}
+		}
+		return numRecords;
+	}
+
+	private static boolean parseRecord(String line, Handler handler)
+	{
+		if (line.length() < 2 || line.charAt(1) != SEP)
+		{
+			return false;
+		}
+		String[] fields = split(line);
+		try
+		{
+			switch (line.charAt(0))
+			{
+				case SESSION_RECORD:
+					if (fields.length < 4)
+					{
+						return false;
+					}
+					handler.onSession(fields[1], Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+					return true;
+				case BEAM_BROKEN_RECORD:
+					if (fields.length < 7)
+					{
+						return false;
+					}
+					handler.onBeamBroken(Long.parseLong(fields[1]), fields[2], Integer.parseInt(fields[3]),
+						Long.parseLong(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]));
+					return true;
+				case RESULT_RECORD:
+					if (fields.length < 4)
+					{
+						return false;
+					}
+					long[] splits = NO_SPLITS;
+					if (fields.length > 4)
+					{
+						splits = new long[fields.length - 4];
+						for (int i = 0; i < splits.length; ++i)
+						{
+							splits[i] = Long.parseLong(fields[4 + i]);
+						}
+					}
+					handler.onResult(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+						Long.parseLong(fields[3]), splits);
+					return true;
+				case UNMATCHED_RECORD:
+					if (fields.length < 3)
+					{
+						return false;
+					}
+					handler.onUnmatched(Long.parseLong(fields[1]),
+						TimingListener.UnmatchedReason.valueOf(fields[2]));
+					return true;
+				default:
+					return false;
+			}
+		}
+		catch (IllegalArgumentException ex)
+		{
+			return false;
+		}
+	}
+
+	private static String[] split(String line)
+	{
+		int numFields = 1;
+		for (int i = line.indexOf(SEP); i >= 0; i = line.indexOf(SEP, i + 1))
+		{
+			++numFields;
+		}
+		String[] fields = new String[numFields];
+		int start = 0;
+		for (int i = 0; i < numFields - 1; ++i)
+		{
+			int end = line.indexOf(SEP, start);
+			fields[i] = line.substring(start, end);
+			start = end + 1;
+		}
+		fields[numFields - 1] = line.substring(start);
+		return fields;
+	}
+}
@@ -0,0 +1,23 @@
+package org.virginiaso.photogator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.virginiaso.SessionSave")
+@Label("Session Save")
+@Category({ "Photogator", "Sessions" })
+@Description("The write of one saved session file, including the move into place")
+final class SessionSaveEvent extends jdk.jfr.Event
+{
+	@Label("File")
+	String path;
+
+	@Label("Length")
+	@Description("The number of characters written")
+	long length;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
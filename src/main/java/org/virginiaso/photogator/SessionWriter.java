@@ -0,0 +1,211 @@
+package org.virginiaso.photogator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Writes saved sessions on a single background thread, so that a slow USB stick
+ * or network drive never stalls the EDT.  Each session is written to a
+ * temporary file in the destination directory, forced to disk, and then linked
+ * into place, so a session file is either complete or absent.  The directory is
+ * forced too before the save reports success, because the caller then deletes
+ * the journaled copy of the session.  An existing session file is never
+ * replaced.  Saves are performed in the order submitted.
+ */
+final class SessionWriter implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SessionWriter.class);
+	private static final long CLOSE_TIMEOUT_SEC = 30;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(
+		Thread.ofPlatform().name("session-writer").daemon(true).factory());
+
+	// Writes each file with its contents, e.g., the session text and its records
+	public CompletableFuture<Void> save(Map<Path, String> contentsByFile)
+	{
+		return CompletableFuture.runAsync(() -> contentsByFile.forEach(SessionWriter::write), executor);
+	}
+
+	private static void write(Path sessionFile, String text)
+	{
+		SessionSaveEvent jfrEvt = new SessionSaveEvent();
+		jfrEvt.begin();
+		boolean succeeded = false;
+		Path tempFile = null;
+		try
+		{
+			tempFile = Files.createTempFile(sessionFile.getParent(), "saving-", ".tmp");
+			writeAndForce(tempFile, text);
+			moveWithoutReplacing(tempFile, sessionFile);
+			forceDirectory(sessionFile.getParent());
+			succeeded = true;
+		}
+		catch (FileAlreadyExistsException ex)
+		{
+			deleteQuietly(tempFile);
+			if (hasContents(sessionFile, text))
+			{
+				// Written by an earlier attempt at this save, which failed on another file
+				LOG.info("'{}' was already saved", sessionFile);
+				forceDirectoryOrFail(sessionFile);
+				succeeded = true;
+			}
+			else
+			{
+				throw new SessionSaveException(sessionFile, ex);
+			}
+		}
+		catch (IOException ex)
+		{
+			deleteQuietly(tempFile);
+			throw new SessionSaveException(sessionFile, ex);
+		}
+		finally
+		{
+			if (jfrEvt.shouldCommit())
+			{
+				jfrEvt.path = sessionFile.toString();
+				jfrEvt.length = text.length();
+				jfrEvt.succeeded = succeeded;
+				jfrEvt.commit();
+			}
+		}
+	}
+
+	private static void writeAndForce(Path file, String text) throws IOException
+	{
+		ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+		{
+			while (bytes.hasRemaining())
+			{
+				channel.write(bytes);
+			}
+			channel.force(true);
+		}
+	}
+
+	// Makes the new directory entry durable, not just the file's contents
+	private static void forceDirectory(Path dir) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch (AccessDeniedException ex)
+		{
+			// Windows cannot open a directory to force it; NTFS journals directory entries
+			LOG.debug("Unable to force directory '{}'", dir, ex);
+		}
+	}
+
+	private static void forceDirectoryOrFail(Path sessionFile)
+	{
+		try
+		{
+			forceDirectory(sessionFile.getParent());
+		}
+		catch (IOException ex)
+		{
+			throw new SessionSaveException(sessionFile, ex);
+		}
+	}
+
+	/*
+	 * A hard link fails atomically if the target exists.  File systems without
+	 * links (e.g., FAT on a USB stick) fall back to a move, which without
+	 * REPLACE_EXISTING also refuses to replace the target.
+	 */
+	private static void moveWithoutReplacing(Path source, Path target) throws IOException
+	{
+		if (Files.exists(target))
+		{
+			throw new FileAlreadyExistsException(target.toString(), null, "already exists");
+		}
+		try
+		{
+			Files.createLink(target, source);
+		}
+		catch (FileAlreadyExistsException ex)
+		{
+			throw ex;
+		}
+		catch (UnsupportedOperationException | FileSystemException ex)
+		{
+			Files.move(source, target);
+			return;
+		}
+		deleteQuietly(source);	// The session is saved even if this fails
+	}
+
+	private static boolean hasContents(Path file, String text)
+	{
+		try
+		{
+			return Files.readString(file, StandardCharsets.UTF_8).equals(text);
+		}
+		catch (IOException ex)
+		{
+			return false;
+		}
+	}
+
+	private static void deleteQuietly(Path file)
+	{
+		if (file != null)
+		{
+			try
+			{
+				Files.deleteIfExists(file);
+			}
+			catch (IOException ex)
+			{
+				LOG.warn("Unable to delete '{}'", file, ex);
+			}
+		}
+	}
+
+	// Waits for saves already submitted, so that closing the window does not lose them
+	@Override
+	public void close()
+	{
+		executor.shutdown();
+		try
+		{
+			if (!executor.awaitTermination(CLOSE_TIMEOUT_SEC, TimeUnit.SECONDS))
+			{
+				LOG.error("Gave up waiting for session saves to finish");
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	static final class SessionSaveException extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+
+		SessionSaveException(Path sessionFile, IOException cause)
+		{
+			super("Unable to save '%1$s': %2$s".formatted(sessionFile, cause.getMessage()), cause);
+		}
+	}
+}
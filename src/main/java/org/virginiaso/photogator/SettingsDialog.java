@@ -24,6 +24,7 @@ public final class SettingsDialog extends JDialog
 	private JLabel headingLbl;
 	private JRadioButton consecutivePairsRadioBtn;
 	private JRadioButton firstStartAfterReadyRadioBtn;
+	private JRadioButton fifoOverlappingRunsRadioBtn;
 	private ButtonGroup radioBtnGrp;
 	private Box radioBtnBox;
 	private JButton cancelBtn;
@@ -44,10 +45,12 @@ public final class SettingsDialog extends JDialog
 		headingLbl = new JLabel("Elapsed time computation method:");
 		consecutivePairsRadioBtn = new JRadioButton("Consecutive start-end pairs");
 		firstStartAfterReadyRadioBtn = new JRadioButton("First start gate after ready");
+		fifoOverlappingRunsRadioBtn = new JRadioButton("Overlapping runs (first in, first out)");
 
 		radioBtnGrp = new ButtonGroup();
 		radioBtnGrp.add(consecutivePairsRadioBtn);
 		radioBtnGrp.add(firstStartAfterReadyRadioBtn);
+		radioBtnGrp.add(fifoOverlappingRunsRadioBtn);
 
 		cancelBtn = new JButton("Cancel");
 		cancelBtn.setActionCommand(cancelBtn.getText());
@@ -58,6 +61,7 @@ public final class SettingsDialog extends JDialog
 		radioBtnBox.add(Box.createVerticalStrut(3));
 		radioBtnBox.add(consecutivePairsRadioBtn);
 		radioBtnBox.add(firstStartAfterReadyRadioBtn);
+		radioBtnBox.add(fifoOverlappingRunsRadioBtn);
 		radioBtnBox.setBorder(BorderFactory.createEmptyBorder(15, 15, 0, 15));
 
 		okBtn = new JButton("OK");
@@ -85,6 +89,7 @@ public final class SettingsDialog extends JDialog
 		JRadioButton rb = switch (etComputeMethod) {
 		case CONSECUTIVE_START_END_PAIR -> consecutivePairsRadioBtn;
 		case FIRST_START_AFTER_READY -> firstStartAfterReadyRadioBtn;
+		case FIFO_OVERLAPPING_RUNS -> fifoOverlappingRunsRadioBtn;
 		};
 		rb.setSelected(true);
 
@@ -102,6 +107,10 @@ public final class SettingsDialog extends JDialog
 		{
 			etComputeMethod = ElapsedTimeComputeMethod.FIRST_START_AFTER_READY;
 		}
+		else if (fifoOverlappingRunsRadioBtn.isSelected())
+		{
+			etComputeMethod = ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS;
+		}
 	}
 
 	private void onCancelBtn()
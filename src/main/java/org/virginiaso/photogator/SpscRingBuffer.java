@@ -0,0 +1,70 @@
+package org.virginiaso.photogator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A bounded, lock-free queue for exactly one producer thread and exactly one
+ * consumer thread.  The release/acquire ordering of the tail and head indices
+ * publishes each element safely without locks or per-element allocation.
+ */
+public final class SpscRingBuffer<T>
+{
+	private final Object[] elements;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();	// next index to poll, written by the consumer
+	private final AtomicLong tail = new AtomicLong();	// next index to offer, written by the producer
+
+	public SpscRingBuffer(int minCapacity)
+	{
+		if (minCapacity <= 0 || minCapacity > (1 << 30))
+		{
+			throw new IllegalArgumentException("Invalid capacity %1$d".formatted(minCapacity));
+		}
+		int capacity = Integer.highestOneBit(minCapacity);
+		if (capacity < minCapacity)
+		{
+			capacity <<= 1;
+		}
+		elements = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	public int capacity()
+	{
+		return elements.length;
+	}
+
+	// Producer thread only.  Returns false if the buffer is full.
+	public boolean offer(T element)
+	{
+		long t = tail.getPlain();
+		if (t - head.getAcquire() >= elements.length)
+		{
+			return false;
+		}
+		elements[(int) t & mask] = element;
+		tail.setRelease(t + 1);
+		return true;
+	}
+
+	// Consumer thread only.  Returns null if the buffer is empty.
+	public T poll()
+	{
+		long h = head.getPlain();
+		if (h >= tail.getAcquire())
+		{
+			return null;
+		}
+		int index = (int) h & mask;
+		@SuppressWarnings("unchecked")
+		T element = (T) elements[index];
+		elements[index] = null;
+		head.setRelease(h + 1);
+		return element;
+	}
+
+	public boolean isEmpty()
+	{
+		return head.getAcquire() >= tail.getAcquire();
+	}
+}
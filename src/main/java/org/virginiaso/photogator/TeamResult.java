@@ -0,0 +1,30 @@
+package org.virginiaso.photogator;
+
+import java.util.Comparator;
+
+// One team's standing: its best elapsed time, and the total and count from which its mean follows
+public record TeamResult(String division, int teamNum, long bestMs, long totalMs, int runCount)
+{
+	public static final Comparator<TeamResult> RANKING = Comparator
+		.comparingLong(TeamResult::bestMs)
+		.thenComparingDouble(TeamResult::meanMs)
+		.thenComparingInt(TeamResult::teamNum);
+
+	public static TeamResult ofRun(String division, int teamNum, long elapsedMs)
+	{
+		return new TeamResult(division, teamNum, elapsedMs, elapsedMs, 1);
+	}
+
+	public TeamResult plus(TeamResult other)
+	{
+		return new TeamResult(division, teamNum, Math.min(bestMs, other.bestMs),
+			totalMs + other.totalMs, runCount + other.runCount);
+	}
+
+	public double meanMs()
+	{
+		return (runCount == 0)
+			? 0.0
+			: (double) totalMs / runCount;
+	}
+}
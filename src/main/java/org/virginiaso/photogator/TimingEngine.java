@@ -0,0 +1,83 @@
+package org.virginiaso.photogator;
+
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+import org.virginiaso.serialport.ArduinoEvent;
+
+/*
+ * The UI-free core of elapsed-time computation:  feed it beam-broken events and
+ * commands, and it reports timing results (and unmatched events) to its
+ * listener according to the selected compute method.  A start is never paired
+ * with a gate from a different clock epoch:  when the epoch changes, pending
+ * starts are reported as unmatched.  Not thread safe -- drive it from a single
+ * thread.
+ */
+public final class TimingEngine
+{
+	private final TimingListener lstnr;
+	private ElapsedTimeComputeMethod computeMethod;
+	private TimingStrategy strategy;
+	private long clockEpoch = ArduinoEvent.NO_CLOCK_EPOCH;
+
+	public TimingEngine(ElapsedTimeComputeMethod computeMethod, TimingListener listener)
+	{
+		lstnr = listener;
+		setComputeMethod(computeMethod);
+	}
+
+	public ElapsedTimeComputeMethod getComputeMethod()
+	{
+		return computeMethod;
+	}
+
+	// Switching methods discards any pending start events
+	public void setComputeMethod(ElapsedTimeComputeMethod newComputeMethod)
+	{
+		if (newComputeMethod != computeMethod)
+		{
+			computeMethod = newComputeMethod;
+			strategy = newComputeMethod.createStrategy();
+		}
+	}
+
+	public void onBeamBroken(BeamBrokenEvent evt)
+	{
+		syncClockEpoch(evt);
+		strategy.onBeamBroken(evt, lstnr);
+	}
+
+	// Lets pending starts time out between beam breaks, e.g., on each heartbeat
+	public void advanceTime(ArduinoEvent evt)
+	{
+		if (evt.getTimelineTime() != ArduinoEvent.NO_ARDUINO_TIME)
+		{
+			syncClockEpoch(evt);
+			strategy.expireRuns(evt.getTimelineTime(), lstnr);
+		}
+	}
+
+	private void syncClockEpoch(ArduinoEvent evt)
+	{
+		if (evt.getClockEpoch() != clockEpoch)
+		{
+			strategy.abandonRuns(lstnr, UnmatchedReason.CLOCK_RESET);
+			clockEpoch = evt.getClockEpoch();
+		}
+	}
+
+	public void ready()
+	{
+		strategy.ready();
+	}
+
+	// Reports pending starts as unmatched, since the display they belong to is being cleared
+	public void reset()
+	{
+		strategy.abandonRuns(lstnr, UnmatchedReason.DISPLAY_CLEARED);
+	}
+
+	// Reports pending starts as unmatched, since no gate can ever complete them
+	public void abandonRuns()
+	{
+		strategy.abandonRuns(lstnr, UnmatchedReason.CLOCK_RESET);
+	}
+}
@@ -0,0 +1,41 @@
+package org.virginiaso.photogator;
+
+public interface TimingListener
+{
+	enum UnmatchedReason
+	{
+		START_TIMED_OUT("start timed out without a finish"),
+		START_DISPLACED("start discarded because too many runs were in progress"),
+		FINISH_WITHOUT_START("finish without a matching start"),
+		SPLIT_WITHOUT_START("split gate without a matching start"),
+		CLOCK_RESET("start abandoned because the Arduino's clock was reset"),
+		DISPLAY_CLEARED("start abandoned because the display was saved and cleared");
+
+		private final String description;
+
+		private UnmatchedReason(String description)
+		{
+			this.description = description;
+		}
+
+		public String getDescription()
+		{
+			return description;
+		}
+	}
+
+	void onResult(TimingResult result);
+
+	// Called as each gate after the start is crossed, on courses with intermediate gates
+	default void onSplit(@SuppressWarnings("unused") BeamBrokenEvent previousEvt,
+		@SuppressWarnings("unused") BeamBrokenEvent evt)
+	{
+		// By default, splits are ignored
+	}
+
+	default void onUnmatched(@SuppressWarnings("unused") BeamBrokenEvent evt,
+		@SuppressWarnings("unused") UnmatchedReason reason)
+	{
+		// By default, unmatched events are ignored
+	}
+}
@@ -0,0 +1,38 @@
+package org.virginiaso.photogator;
+
+import java.util.List;
+
+// The gate events of one completed run, in course order, from start to finish
+public record TimingResult(List<BeamBrokenEvent> gateEvents)
+{
+	public TimingResult
+	{
+		gateEvents = List.copyOf(gateEvents);
+	}
+
+	public TimingResult(BeamBrokenEvent startEvent, BeamBrokenEvent finishEvent)
+	{
+		this(List.of(startEvent, finishEvent));
+	}
+
+	public BeamBrokenEvent startEvent()
+	{
+		return gateEvents.get(0);
+	}
+
+	public BeamBrokenEvent finishEvent()
+	{
+		return gateEvents.get(gateEvents.size() - 1);
+	}
+
+	public long elapsedMs()
+	{
+		return finishEvent().getTimelineTime() - startEvent().getTimelineTime();
+	}
+
+	// Elapsed time from gate i - 1 to gate i, for 1 <= i < gateEvents().size()
+	public long splitMs(int i)
+	{
+		return gateEvents.get(i).getTimelineTime() - gateEvents.get(i - 1).getTimelineTime();
+	}
+}
@@ -0,0 +1,29 @@
+package org.virginiaso.photogator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("org.virginiaso.TimingResult")
+@Label("Timing Result")
+@Category({ "Photogator", "Timing" })
+@Description("A completed run, as computed by the timing engine")
+@StackTrace(false)
+final class TimingResultEvent extends jdk.jfr.Event
+{
+	@Label("Elapsed Time")
+	@Timespan(Timespan.MILLISECONDS)
+	long elapsedMs;
+
+	@Label("Start Sequence Number")
+	long startSeqNum;
+
+	@Label("Finish Sequence Number")
+	long finishSeqNum;
+
+	@Label("Gates")
+	int gateCount;
+}
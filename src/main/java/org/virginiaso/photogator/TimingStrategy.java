@@ -0,0 +1,23 @@
+package org.virginiaso.photogator;
+
+/*
+ * Pairs start and finish events into timing results.  Implementations must
+ * not allocate except when reporting a result.
+ */
+public interface TimingStrategy
+{
+	void onBeamBroken(BeamBrokenEvent evt, TimingListener listener);
+
+	// The operator pressed the Ready button
+	void ready();
+
+	// Report every pending start as unmatched and forget it, e.g., when the display is cleared
+	void abandonRuns(TimingListener listener, TimingListener.UnmatchedReason reason);
+
+	// Report starts that have waited too long, even if no beam has been broken since
+	default void expireRuns(@SuppressWarnings("unused") long timelineTime,
+		@SuppressWarnings("unused") TimingListener listener)
+	{
+		// By default, starts never time out
+	}
+}
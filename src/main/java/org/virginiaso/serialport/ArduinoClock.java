@@ -0,0 +1,241 @@
+package org.virginiaso.serialport;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Maps the Arduino's millis() clock onto the host's wall clock.  Every event
+ * that carries an Arduino time (heartbeats and beam breaks) contributes a
+ * sample pairing that time with the host's monotonic arrival time.  A
+ * least-squares fit over recent samples estimates the drift between the two
+ * clocks, and the fitted line is then lowered to the sample with the least
+ * delay, since serial and scheduling delays can only make a message arrive
+ * late, never early.  Each event's wall-clock time is derived from its Arduino
+ * time through this line rather than from when the host happened to parse it.
+ *
+ * The Arduino's 32-bit millis() wraps after about 49.7 days, so times are
+ * extended to a monotonic 64-bit timeline.  A backwards jump of more than
+ * RESET_THRESHOLD_MS that is not a wraparound means the Arduino was reset, which
+ * restarts the model.  A smaller one (e.g., a message delayed behind a later
+ * one) is a regression:  the event is stamped, but leaves the model alone.  Each
+ * restart begins a new clock epoch, identified by the wall-clock time at which
+ * it began, so that times from different runs of the Arduino's clock are never
+ * compared.
+ *
+ * Not thread safe:  call observe() from the serial port's thread only.
+ */
+public final class ArduinoClock
+{
+	private static final long MILLIS_WRAP = 1L << 32;
+	private static final long WRAP_WINDOW_MS = TimeUnit.MINUTES.toMillis(10);
+	private static final long RESET_THRESHOLD_MS = TimeUnit.SECONDS.toMillis(5);
+	private static final int MAX_SAMPLES = 64;
+	private static final long MIN_DRIFT_FIT_SPAN_MS = TimeUnit.SECONDS.toMillis(30);
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final long anchorHostNanos;
+	private final Instant anchorWallClock;
+	private final ZoneId zone;
+	private final long[] sampleTimeline = new long[MAX_SAMPLES];
+	private final double[] sampleHostMs = new double[MAX_SAMPLES];
+	private int numSamples;
+	private int nextSample;
+	private long lastArduinoTime;
+	private long wrapOffset;
+	private long resetCount;
+	private long regressionCount;
+	private long clockEpoch;
+
+	// Fitted model:  hostMs = offsetMs + slope * timelineMs
+	private double slope;
+	private double offsetMs;
+	private double meanLatencyMs;
+	private double latencyJitterMs;
+
+	public ArduinoClock()
+	{
+		anchorHostNanos = System.nanoTime();
+		anchorWallClock = Instant.now();
+		zone = ZoneId.systemDefault();
+		resetCount = 0;
+		regressionCount = 0;
+		clockEpoch = ArduinoEvent.NO_CLOCK_EPOCH;
+		restart();
+	}
+
+	private void restart()
+	{
+		clockEpoch = Math.max(System.currentTimeMillis(), clockEpoch + 1);
+		numSamples = 0;
+		nextSample = 0;
+		lastArduinoTime = ArduinoEvent.NO_ARDUINO_TIME;
+		wrapOffset = 0;
+		slope = 1.0;
+		offsetMs = 0.0;
+		meanLatencyMs = 0.0;
+		latencyJitterMs = 0.0;
+	}
+
+	// Updates the model with the event, then stamps the event with its synchronized times
+	public void observe(ArduinoEvent evt)
+	{
+		long arduinoTime = evt.getArduinoTime();
+		if (arduinoTime == ArduinoEvent.NO_ARDUINO_TIME)
+		{
+			return;
+		}
+
+		long regression = getRegression(arduinoTime);
+		if (regression > 0)
+		{
+			++regressionCount;
+			long timelineTime = wrapOffset + lastArduinoTime - regression;
+			evt.setSynchronizedTime(clockEpoch, timelineTime, toWallClock(timelineTime));
+			return;
+		}
+
+		long timelineTime = unwrap(arduinoTime);
+		addSample(timelineTime, toHostMs(evt.getHostNanoTime()));
+		fit();
+		evt.setSynchronizedTime(clockEpoch, timelineTime, toWallClock(timelineTime));
+	}
+
+	// How far the time is behind the latest one, if by no more than RESET_THRESHOLD_MS, else zero
+	private long getRegression(long arduinoTime)
+	{
+		if (lastArduinoTime == ArduinoEvent.NO_ARDUINO_TIME)
+		{
+			return 0;
+		}
+		long regression = (lastArduinoTime - arduinoTime) & (MILLIS_WRAP - 1);	// Also across a wraparound
+		return (regression <= RESET_THRESHOLD_MS) ? regression : 0;
+	}
+
+	private long unwrap(long arduinoTime)
+	{
+		if (lastArduinoTime != ArduinoEvent.NO_ARDUINO_TIME && arduinoTime < lastArduinoTime)
+		{
+			if (lastArduinoTime >= MILLIS_WRAP - WRAP_WINDOW_MS && arduinoTime < WRAP_WINDOW_MS)
+			{
+				wrapOffset += MILLIS_WRAP;
+			}
+			else
+			{
+				++resetCount;
+				restart();
+			}
+		}
+		lastArduinoTime = arduinoTime;
+		return wrapOffset + arduinoTime;
+	}
+
+	private void addSample(long timelineTime, double hostMs)
+	{
+		sampleTimeline[nextSample] = timelineTime;
+		sampleHostMs[nextSample] = hostMs;
+		nextSample = (nextSample + 1) % MAX_SAMPLES;
+		numSamples = Math.min(numSamples + 1, MAX_SAMPLES);
+	}
+
+	private void fit()
+	{
+		// Center the data on the oldest sample to keep the arithmetic well conditioned:
+		long xOrigin = sampleTimeline[(nextSample - numSamples + MAX_SAMPLES) % MAX_SAMPLES];
+		long xSpan = sampleTimeline[(nextSample - 1 + MAX_SAMPLES) % MAX_SAMPLES] - xOrigin;
+		double sumX = 0, sumY = 0;
+		for (int i = 0; i < numSamples; ++i)
+		{
+			sumX += sampleTimeline[i] - xOrigin;
+			sumY += sampleHostMs[i];
+		}
+		double meanX = sumX / numSamples;
+		double meanY = sumY / numSamples;
+		double sxx = 0, sxy = 0;
+		for (int i = 0; i < numSamples; ++i)
+		{
+			double dx = sampleTimeline[i] - xOrigin - meanX;
+			sxx += dx * dx;
+			sxy += dx * (sampleHostMs[i] - meanY);
+		}
+
+		// Until the samples span enough time, assume the two clocks run at the same rate:
+		slope = (sxx > 0 && numSamples >= 3 && xSpan >= MIN_DRIFT_FIT_SPAN_MS) ? sxy / sxx : 1.0;
+
+		double minResidual = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < numSamples; ++i)
+		{
+			minResidual = Math.min(minResidual, sampleHostMs[i] - slope * sampleTimeline[i]);
+		}
+		offsetMs = minResidual;
+
+		double sumLatency = 0, sumLatencySq = 0;
+		for (int i = 0; i < numSamples; ++i)
+		{
+			double latency = sampleHostMs[i] - (offsetMs + slope * sampleTimeline[i]);
+			sumLatency += latency;
+			sumLatencySq += latency * latency;
+		}
+		meanLatencyMs = sumLatency / numSamples;
+		latencyJitterMs = Math.sqrt(Math.max(0.0, sumLatencySq / numSamples - meanLatencyMs * meanLatencyMs));
+	}
+
+	private double toHostMs(long hostNanoTime)
+	{
+		return (hostNanoTime - anchorHostNanos) / NANOS_PER_MILLI;
+	}
+
+	private LocalDateTime toWallClock(long timelineTime)
+	{
+		double hostMs = offsetMs + slope * timelineTime;
+		Instant instant = anchorWallClock.plusNanos(Math.round(hostMs * NANOS_PER_MILLI));
+		return LocalDateTime.ofInstant(instant, zone);
+	}
+
+	public int getSampleCount()
+	{
+		return numSamples;
+	}
+
+	public long getClockEpoch()
+	{
+		return clockEpoch;
+	}
+
+	public long getResetCount()
+	{
+		return resetCount;
+	}
+
+	// Events whose time was slightly behind the latest one, which were not taken as resets
+	public long getRegressionCount()
+	{
+		return regressionCount;
+	}
+
+	// Parts per million by which the Arduino's clock runs slow (positive) or fast (negative)
+	public double getDriftPpm()
+	{
+		return (slope - 1.0) * 1_000_000.0;
+	}
+
+	// Mean serial latency beyond the fastest observed message
+	public double getMeanLatencyMs()
+	{
+		return meanLatencyMs;
+	}
+
+	// Standard deviation of the serial latency
+	public double getLatencyJitterMs()
+	{
+		return latencyJitterMs;
+	}
+
+	public String formatSummary()
+	{
+		return ("Arduino clock: %1$d samples, drift %2$.1f ppm, excess latency %3$.2f ms, jitter %4$.2f ms, "
+			+ "%5$d resets, %6$d regressions")
+			.formatted(numSamples, getDriftPpm(), meanLatencyMs, latencyJitterMs, resetCount, regressionCount);
+	}
+}
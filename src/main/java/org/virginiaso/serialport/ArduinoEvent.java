@@ -1,110 +1,235 @@
 package org.virginiaso.serialport;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 public abstract class ArduinoEvent
 {
-	private static class RegisteredMsgType
-	{
-		private static final String REGEX_FIELD_NAME = "MSG_PATTERN";
-		private static final String BAD_FIELD_TYPE_FMT
-			= "The field %1$s of class %2$s is of type %3$s (should be of type %4$s)";
-		private static final String CANT_REGISTER_FMT
-			= "Unable to register message type %1$s due to %2$s:  %3$s";
-		private final Class<? extends ArduinoEvent> msgType;
-		private final Pattern msgPattern;
-		private final Constructor<? extends ArduinoEvent> msgCtor;
-
-		public RegisteredMsgType(Class<? extends ArduinoEvent> messageType)
+	/*
+	 * Builds an event from a message whose registered prefix has already been
+	 * matched.  Returns null if the remainder of the message is malformed.
+	 */
+	@FunctionalInterface
+	public interface MsgFactory
+	{
+		ArduinoEvent create(CharSequence msg, int fieldsStart);
+	}
+
+	private static final class RegisteredMsgType
+	{
+		private final String msgPrefix;
+		private final MsgFactory msgFactory;
+
+		public RegisteredMsgType(String messagePrefix, MsgFactory messageFactory)
 		{
-			try
+			msgPrefix = messagePrefix;
+			msgFactory = messageFactory;
+		}
+
+		public boolean isPrefixOf(CharSequence msg)
+		{
+			int prefixLen = msgPrefix.length();
+			if (msg.length() < prefixLen)
 			{
-				msgType = messageType;
-				Field f = msgType.getField(REGEX_FIELD_NAME);
-				if (f.getType().isAssignableFrom(Pattern.class))
-				{
-					msgPattern = (Pattern) f.get(null);
-				}
-				else
-				{
-					throw new IllegalStateException(BAD_FIELD_TYPE_FMT.formatted(
-						REGEX_FIELD_NAME, msgType.getName(), f.getType().getName(),
-							Pattern.class.getName()));
-				}
-				msgCtor = msgType.getConstructor(Matcher.class);
+				return false;
 			}
-			catch (NoSuchMethodException | SecurityException | NoSuchFieldException
-				| IllegalArgumentException | IllegalAccessException ex)
+			for (int i = 0; i < prefixLen; ++i)
 			{
-				throw new IllegalStateException(CANT_REGISTER_FMT.formatted(
-					messageType.getName(), ex.getClass().getSimpleName(), ex.getMessage()), ex);
+				if (toLowerAscii(msg.charAt(i)) != toLowerAscii(msgPrefix.charAt(i)))
+				{
+					return false;
+				}
 			}
+			return true;
 		}
 
-		public Pattern getMsgPattern()
+		public ArduinoEvent create(CharSequence msg)
 		{
-			return msgPattern;
+			return msgFactory.create(msg, msgPrefix.length());
 		}
+	}
 
-		public ArduinoEvent invokeCtor(Matcher matcher)
+	public static final long NO_ARDUINO_TIME = -1;
+	public static final long NO_CLOCK_EPOCH = 0;
+
+	private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm:ss a");
+	private static final int DISPATCH_TABLE_SIZE = 128;
+	private static final RegisteredMsgType[] NO_MSG_TYPES = {};
+
+	// Registered message types, indexed by the lower-cased first character of their prefix:
+	private static volatile RegisteredMsgType[][] dispatchTable = newDispatchTable();
+
+	private final long hostNanoTime;
+	private long arrivalNanoTime;
+	private long clockEpoch;
+	private long timelineTime;
+	private LocalDateTime wallClockTime;
+
+	private static RegisteredMsgType[][] newDispatchTable()
+	{
+		RegisteredMsgType[][] table = new RegisteredMsgType[DISPATCH_TABLE_SIZE][];
+		Arrays.fill(table, NO_MSG_TYPES);
+		return table;
+	}
+
+	public static synchronized void registerMsgType(String msgPrefix, MsgFactory msgFactory)
+	{
+		if (msgPrefix == null || msgPrefix.isEmpty() || msgPrefix.charAt(0) >= DISPATCH_TABLE_SIZE)
 		{
-			try
-			{
-				return msgCtor.newInstance(matcher);
-			}
-			catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-				| InvocationTargetException ex)
+			throw new IllegalArgumentException("Invalid message prefix \"%1$s\"".formatted(msgPrefix));
+		}
+
+		int slot = toLowerAscii(msgPrefix.charAt(0));
+		RegisteredMsgType[][] table = dispatchTable.clone();
+		if (Arrays.stream(table[slot]).noneMatch(mt -> mt.msgPrefix.equalsIgnoreCase(msgPrefix)))
+		{
+			// Keep longer prefixes first so that the most specific prefix wins:
+			RegisteredMsgType[] slotTypes = Arrays.copyOf(table[slot], table[slot].length + 1);
+			slotTypes[slotTypes.length - 1] = new RegisteredMsgType(msgPrefix, msgFactory);
+			Arrays.sort(slotTypes, (lhs, rhs) -> Integer.compare(rhs.msgPrefix.length(), lhs.msgPrefix.length()));
+			table[slot] = slotTypes;
+			dispatchTable = table;
+		}
+	}
+
+	public static ArduinoEvent parse(CharSequence eventMsg)
+	{
+		MessageParsedEvent jfrEvt = new MessageParsedEvent();
+		jfrEvt.begin();
+		ArduinoEvent result = dispatch(eventMsg);
+		if (jfrEvt.shouldCommit())
+		{
+			jfrEvt.message = eventMsg.toString();
+			jfrEvt.recognized = (result != null);
+			jfrEvt.eventType = (result == null) ? null : result.getClass().getSimpleName();
+			jfrEvt.commit();
+		}
+		return result;
+	}
+
+	private static ArduinoEvent dispatch(CharSequence eventMsg)
+	{
+		if (eventMsg.length() <= 0 || eventMsg.charAt(0) >= DISPATCH_TABLE_SIZE)
+		{
+			return null;
+		}
+		for (RegisteredMsgType mt : dispatchTable[toLowerAscii(eventMsg.charAt(0))])
+		{
+			if (mt.isPrefixOf(eventMsg))
 			{
-				throw new RuntimeException("Unable to invoke registered message type's constructor:", ex);
+				return mt.create(eventMsg);
 			}
 		}
+		return null;
 	}
 
-	private static final DateTimeFormatter TIME_FMT = DateTimeFormatter.ofPattern("h:mm:ss a");
-	private static final Map<Class<? extends ArduinoEvent>, RegisteredMsgType> registeredMsgTypes = new HashMap<>();
-
-	private LocalDateTime wallClockTime;
+	private static char toLowerAscii(char ch)
+	{
+		return (ch >= 'A' && ch <= 'Z')
+			? (char) (ch + ('a' - 'A'))
+			: ch;
+	}
 
-	public static void registerMsgType(Class<? extends ArduinoEvent> messageType)
+	// Returns the index of ch in msg at or after fromIndex, or -1 if not found
+	protected static int indexOf(CharSequence msg, char ch, int fromIndex)
 	{
-		if (!registeredMsgTypes.containsKey(messageType))
+		for (int i = fromIndex; i < msg.length(); ++i)
 		{
-			registeredMsgTypes.put(messageType, new RegisteredMsgType(messageType));
+			if (msg.charAt(i) == ch)
+			{
+				return i;
+			}
 		}
+		return -1;
 	}
 
-	public static ArduinoEvent parse(String eventMsg)
+	// Returns the unsigned decimal in msg[start, end), or -1 if it is empty, malformed, or too large
+	protected static long parseUnsignedDecimal(CharSequence msg, int start, int end)
 	{
-		ArduinoEvent result = null;
-		for (RegisteredMsgType mt : registeredMsgTypes.values())
+		if (start >= end)
+		{
+			return -1;
+		}
+		long result = 0;
+		for (int i = start; i < end; ++i)
 		{
-			Matcher matcher = mt.getMsgPattern().matcher(eventMsg);
-			if (matcher.matches())
+			int digit = msg.charAt(i) - '0';
+			if (digit < 0 || digit > 9 || result > (Long.MAX_VALUE - digit) / 10)
 			{
-				result = mt.invokeCtor(matcher);
-				break;
+				return -1;
 			}
+			result = result * 10 + digit;
 		}
 		return result;
 	}
 
 	protected ArduinoEvent()
 	{
+		hostNanoTime = System.nanoTime();
+		arrivalNanoTime = hostNanoTime;
+		clockEpoch = NO_CLOCK_EPOCH;
+		timelineTime = NO_ARDUINO_TIME;
 		wallClockTime = LocalDateTime.now();
 	}
 
+	// The host's monotonic clock (System.nanoTime) when the event was parsed
+	public long getHostNanoTime()
+	{
+		return hostNanoTime;
+	}
+
+	// The host's monotonic clock when the event's first byte arrived on the serial port
+	public long getArrivalNanoTime()
+	{
+		return arrivalNanoTime;
+	}
+
+	public void setArrivalNanoTime(long arrivalNanoTime)
+	{
+		this.arrivalNanoTime = arrivalNanoTime;
+	}
+
+	// The Arduino's 32-bit millis() value for the event, or NO_ARDUINO_TIME if it has none
+	public long getArduinoTime()
+	{
+		return NO_ARDUINO_TIME;
+	}
+
+	// The Arduino time extended to 64 bits across millis() wraparounds, if known
+	public long getTimelineTime()
+	{
+		return (timelineTime == NO_ARDUINO_TIME)
+			? getArduinoTime()
+			: timelineTime;
+	}
+
+	// Identifies the run of the Arduino's clock that the timeline time belongs to, or NO_CLOCK_EPOCH if unknown
+	public long getClockEpoch()
+	{
+		return clockEpoch;
+	}
+
+	// Called by ArduinoClock with times derived from the Arduino's clock, or when an event is restored
+	public void setSynchronizedTime(long clockEpoch, long timelineTime, LocalDateTime wallClockTime)
+	{
+		this.clockEpoch = clockEpoch;
+		this.timelineTime = timelineTime;
+		this.wallClockTime = wallClockTime;
+	}
+
+	public LocalDateTime getWallClockTime()
+	{
+		return wallClockTime;
+	}
+
 	protected String formatWallClockTime()
 	{
 		return TIME_FMT.format(wallClockTime);
 	}
 
 	public abstract String format();
+
+	// The message as the Arduino sent it, without the NUL terminator
+	public abstract String formatMsg();
 }
@@ -1,9 +1,10 @@
 package org.virginiaso.serialport;
 
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import jssc.SerialPort;
 import jssc.SerialPortEvent;
 import jssc.SerialPortEventListener;
@@ -11,19 +12,19 @@ import jssc.SerialPortException;
 
 public class BufferingSerialPortListener implements SerialPortEventListener
 {
-	private final Consumer<String> lstnr;
+	private static final Logger LOG = LoggerFactory.getLogger(BufferingSerialPortListener.class);
+
 	private final SerialPort port;
-	private byte[] buffer;
-	private int bufferLength;
-	private PrintStream errLog;
+	private final FrameDecoder decoder;
+	private final SerialCapture capture;
 
-	public BufferingSerialPortListener(SerialPort serialPort, Consumer<String> listener, PrintStream errorLog)
+	// The capture may be null
+	public BufferingSerialPortListener(SerialPort serialPort, Consumer<SerialFrame> listener,
+		SerialCapture serialCapture)
 	{
-		lstnr = listener;
 		port = serialPort;
-		buffer = new byte[256]; // needs to be long enough for the largest message
-		bufferLength = 0;
-		errLog = errorLog;
+		decoder = new FrameDecoder(listener);
+		capture = serialCapture;
 	}
 
 	@Override
@@ -33,24 +34,35 @@ public class BufferingSerialPortListener implements SerialPortEventListener
 		{
 			try
 			{
-				byte[] bytesRecieved = port.readBytes();
-				for (byte b : bytesRecieved)
+				SerialReadEvent jfrEvt = new SerialReadEvent();
+				jfrEvt.begin();
+				long arrivalNanoTime = System.nanoTime();
+				// jssc can only read into a freshly allocated array:
+				byte[] bytesRecieved = port.readBytes(event.getEventValue());
+				if (bytesRecieved != null)
 				{
-					if (b == 0)
+					if (capture != null)
 					{
-						lstnr.accept(new String(buffer, 0, bufferLength, StandardCharsets.UTF_8));
-						bufferLength = 0;
-					}
-					else
-					{
-						buffer[bufferLength++] = b;
+						capture.record(bytesRecieved, 0, bytesRecieved.length, arrivalNanoTime);
 					}
+					decoder.decode(bytesRecieved, 0, bytesRecieved.length, arrivalNanoTime);
+				}
+				if (jfrEvt.shouldCommit())
+				{
+					jfrEvt.portName = port.getPortName();
+					jfrEvt.byteCount = (bytesRecieved == null) ? 0 : bytesRecieved.length;
+					jfrEvt.commit();
 				}
 			}
 			catch (SerialPortException ex)
 			{
-				ex.printStackTrace(errLog);
+				LOG.error("Unable to read from serial port '{}'", port.getPortName(), ex);
 			}
 		}
 	}
+
+	public FrameDecoder getDecoder()
+	{
+		return decoder;
+	}
 }
@@ -0,0 +1,11 @@
+package org.virginiaso.serialport;
+
+public record ConnectionStatus(State state, String portName, long silenceMs, long reconnectLatencyMs)
+{
+	public enum State
+	{
+		CONNECTED,
+		STALE,
+		RECONNECTING
+	}
+}
@@ -0,0 +1,16 @@
+package org.virginiaso.serialport;
+
+/*
+ * A source of NUL-framed Arduino messages, delivered to a Consumer<SerialFrame>
+ * on the source's own thread.  SerialPortReader reads them from a real serial
+ * port, and SimulatedArduino generates them in-process.
+ */
+public interface EventSource extends AutoCloseable
+{
+	// The serial port name, or a description of a non-hardware source
+	String getName();
+
+	// Stops delivering frames and releases the source.  Failures are logged, not thrown.
+	@Override
+	void close();
+}
@@ -0,0 +1,28 @@
+package org.virginiaso.serialport;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.virginiaso.FrameDecoded")
+@Label("Frame Decoded")
+@Category({ "Photogator", "Serial Port" })
+@Description("A NUL-terminated frame, and the time its listener took to handle it")
+@StackTrace(false)
+final class FrameDecodedEvent extends jdk.jfr.Event
+{
+	static final String DELIVERED = "delivered";
+	static final String OVERSIZE = "dropped: oversize";
+	static final String GARBLED = "dropped: non-printable bytes";
+	static final String LISTENER_FAILED = "listener failed";
+
+	@Label("Frame Length")
+	@DataAmount
+	int length;
+
+	@Label("Outcome")
+	String outcome;
+}
@@ -0,0 +1,212 @@
+package org.virginiaso.serialport;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Splits a stream of bytes into NUL-delimited frames.  The decoder copies each
+ * chunk into a single pooled buffer and hands frames downstream as a reused
+ * SerialFrame view, so steady-state decoding allocates nothing.  Frames that
+ * overflow the buffer or contain non-printable bytes are dropped (and counted),
+ * and decoding resynchronizes at the next NUL.
+ */
+public final class FrameDecoder
+{
+	public static final int MAX_FRAME_LENGTH = 256;
+
+	private static final Logger LOG = LoggerFactory.getLogger(FrameDecoder.class);
+	private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(
+		long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private final Consumer<SerialFrame> lstnr;
+	private final ByteBuffer frameBuffer;
+	private final SerialFrame frame;
+	private boolean isDiscarding;
+	private long chunkArrivalNanoTime;
+	private long frameArrivalNanoTime;
+	private long frameCount;
+	private long oversizeFrameCount;
+	private long garbledFrameCount;
+	private long listenerFailureCount;
+
+	public FrameDecoder(Consumer<SerialFrame> listener)
+	{
+		lstnr = listener;
+		frameBuffer = ByteBuffer.allocateDirect(MAX_FRAME_LENGTH);
+		frame = new SerialFrame(frameBuffer);
+		isDiscarding = false;
+		chunkArrivalNanoTime = 0;
+		frameArrivalNanoTime = 0;
+		frameCount = 0;
+		oversizeFrameCount = 0;
+		garbledFrameCount = 0;
+		listenerFailureCount = 0;
+	}
+
+	public void decode(byte[] chunk)
+	{
+		decode(chunk, 0, chunk.length, System.nanoTime());
+	}
+
+	public void decode(byte[] chunk, int offset, int length)
+	{
+		decode(chunk, offset, length, System.nanoTime());
+	}
+
+	// arrivalNanoTime is the System.nanoTime at which the chunk arrived, for latency measurement
+	public void decode(byte[] chunk, int offset, int length, long arrivalNanoTime)
+	{
+		chunkArrivalNanoTime = arrivalNanoTime;
+		int end = offset + length;
+		int segmentStart = offset;
+		while (segmentStart < end)
+		{
+			int nulIndex = indexOfNul(chunk, segmentStart, end);
+			if (nulIndex < 0)
+			{
+				appendSegment(chunk, segmentStart, end - segmentStart);
+				break;
+			}
+			appendSegment(chunk, segmentStart, nulIndex - segmentStart);
+			completeFrame();
+			segmentStart = nulIndex + 1;
+		}
+	}
+
+	// Scans eight bytes at a time using the classic "has a zero byte" bit trick
+	static int indexOfNul(byte[] chunk, int from, int to)
+	{
+		int i = from;
+		for (; i + Long.BYTES <= to; i += Long.BYTES)
+		{
+			long word = (long) LONG_VIEW.get(chunk, i);
+			long zeroBytes = (word - LOW_BITS) & ~word & HIGH_BITS;
+			if (zeroBytes != 0)
+			{
+				return i + Long.numberOfTrailingZeros(zeroBytes) / Byte.SIZE;
+			}
+		}
+		for (; i < to; ++i)
+		{
+			if (chunk[i] == 0)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void appendSegment(byte[] chunk, int offset, int length)
+	{
+		if (isDiscarding || length == 0)
+		{
+			// Nothing to do
+		}
+		else if (length > frameBuffer.remaining())
+		{
+			isDiscarding = true;
+			frameBuffer.clear();
+		}
+		else
+		{
+			if (frameBuffer.position() == 0)
+			{
+				frameArrivalNanoTime = chunkArrivalNanoTime;
+			}
+			frameBuffer.put(chunk, offset, length);
+		}
+	}
+
+	private void completeFrame()
+	{
+		FrameDecodedEvent jfrEvt = new FrameDecodedEvent();
+		jfrEvt.begin();
+		String outcome = FrameDecodedEvent.DELIVERED;
+		int length = frameBuffer.position();
+		frameBuffer.clear();
+		if (isDiscarding)
+		{
+			isDiscarding = false;
+			++oversizeFrameCount;
+			outcome = FrameDecodedEvent.OVERSIZE;
+			LOG.warn("Dropped a frame longer than {} bytes ({} oversize frames so far)",
+				MAX_FRAME_LENGTH, oversizeFrameCount);
+		}
+		else if (length == 0)
+		{
+			// Ignore empty frames, e.g., the remnant of a partially-received frame
+			return;
+		}
+		else if (!isPrintableAscii(length))
+		{
+			++garbledFrameCount;
+			outcome = FrameDecodedEvent.GARBLED;
+			LOG.warn("Dropped a frame containing non-printable bytes ({} garbled frames so far)",
+				garbledFrameCount);
+		}
+		else
+		{
+			++frameCount;
+			frame.reset(length, frameArrivalNanoTime, System.nanoTime());
+			try
+			{
+				lstnr.accept(frame);
+			}
+			catch (RuntimeException ex)
+			{
+				// Never let one bad frame kill the serial port's event thread:
+				++listenerFailureCount;
+				outcome = FrameDecodedEvent.LISTENER_FAILED;
+				LOG.error("Frame listener failed on '{}'", frame, ex);
+			}
+		}
+
+		if (jfrEvt.shouldCommit())
+		{
+			jfrEvt.length = length;
+			jfrEvt.outcome = outcome;
+			jfrEvt.commit();
+		}
+	}
+
+	private boolean isPrintableAscii(int length)
+	{
+		for (int i = 0; i < length; ++i)
+		{
+			byte b = frameBuffer.get(i);
+			if (b < 0x20 || b > 0x7e)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long getFrameCount()
+	{
+		return frameCount;
+	}
+
+	public long getOversizeFrameCount()
+	{
+		return oversizeFrameCount;
+	}
+
+	public long getGarbledFrameCount()
+	{
+		return garbledFrameCount;
+	}
+
+	public long getListenerFailureCount()
+	{
+		return listenerFailureCount;
+	}
+}
@@ -1,15 +1,37 @@
 package org.virginiaso.serialport;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class HeartBeatEvent extends ArduinoEvent
 {
-	public static final Pattern MSG_PATTERN = Pattern.compile("^HeartBeat$", Pattern.CASE_INSENSITIVE);
+	public static final String MSG_PREFIX = "HeartBeat";
+
+	private final long arduinoTime;
 
-	public HeartBeatEvent(@SuppressWarnings("unused") Matcher msgMatcher)
+	// Accepts both "HeartBeat" (older firmware) and "HeartBeat:<arduinoTime>"
+	public static HeartBeatEvent create(CharSequence msg, int fieldsStart)
 	{
-		// Nothing to do for this message type
+		if (fieldsStart == msg.length())
+		{
+			return new HeartBeatEvent(NO_ARDUINO_TIME);
+		}
+		else if (msg.charAt(fieldsStart) != ':')
+		{
+			return null;
+		}
+		long arduinoTime = parseUnsignedDecimal(msg, fieldsStart + 1, msg.length());
+		return (arduinoTime < 0)
+			? null
+			: new HeartBeatEvent(arduinoTime);
+	}
+
+	public HeartBeatEvent(long arduinoTime)
+	{
+		this.arduinoTime = arduinoTime;
+	}
+
+	@Override
+	public long getArduinoTime()
+	{
+		return arduinoTime;
 	}
 
 	@Override
@@ -17,4 +39,12 @@ public class HeartBeatEvent extends ArduinoEvent
 	{
 		return "";
 	}
+
+	@Override
+	public String formatMsg()
+	{
+		return (arduinoTime == NO_ARDUINO_TIME)
+			? MSG_PREFIX
+			: MSG_PREFIX + ":" + arduinoTime;
+	}
 }
@@ -0,0 +1,24 @@
+package org.virginiaso.serialport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.virginiaso.MessageParsed")
+@Label("Message Parsed")
+@Category({ "Photogator", "Serial Port" })
+@Description("The outcome of ArduinoEvent.parse for one message")
+@StackTrace(false)
+final class MessageParsedEvent extends jdk.jfr.Event
+{
+	@Label("Message")
+	String message;
+
+	@Label("Recognized")
+	boolean recognized;
+
+	@Label("Event Type")
+	String eventType;
+}
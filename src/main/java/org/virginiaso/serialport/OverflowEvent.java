@@ -0,0 +1,45 @@
+package org.virginiaso.serialport;
+
+/*
+ * Sent by the firmware when beam-broken events were lost because its event
+ * queue was full.  The count is cumulative since the Arduino started, so one
+ * lost message is made up for by the next.
+ */
+public class OverflowEvent extends ArduinoEvent
+{
+	public static final String MSG_PREFIX = "Overflow:";
+	private static final String MSG_FMT
+		= "Error: Events dropped by the photogate controller because its queue was full: %1$d since it started%n";
+
+	private final long overflowCount;
+
+	public static OverflowEvent create(CharSequence msg, int fieldsStart)
+	{
+		long overflowCount = parseUnsignedDecimal(msg, fieldsStart, msg.length());
+		return (overflowCount < 0)
+			? null
+			: new OverflowEvent(overflowCount);
+	}
+
+	public OverflowEvent(long overflowCount)
+	{
+		this.overflowCount = overflowCount;
+	}
+
+	public long getOverflowCount()
+	{
+		return overflowCount;
+	}
+
+	@Override
+	public String format()
+	{
+		return MSG_FMT.formatted(overflowCount);
+	}
+
+	@Override
+	public String formatMsg()
+	{
+		return MSG_PREFIX + overflowCount;
+	}
+}
@@ -0,0 +1,27 @@
+package org.virginiaso.serialport;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("org.virginiaso.Reconnect")
+@Label("Serial Port Reconnect")
+@Category({ "Photogator", "Serial Port" })
+@Description("An attempt to reopen, or rediscover, a serial port that went stale")
+final class ReconnectEvent extends jdk.jfr.Event
+{
+	@Label("Stale Port")
+	String portName;
+
+	@Label("Reopened Port")
+	String newPortName;
+
+	@Label("Silence")
+	@Timespan(Timespan.MILLISECONDS)
+	long silenceMs;
+
+	@Label("Succeeded")
+	boolean succeeded;
+}
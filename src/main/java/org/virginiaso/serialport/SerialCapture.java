@@ -0,0 +1,229 @@
+package org.virginiaso.serialport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Records every raw chunk read from the serial port, exactly as it arrived, so
+ * that a session can be replayed later through SerialReplay.  The file starts
+ * with a magic number and the wall-clock time at which the capture began,
+ * followed by one record per chunk:  the nanoseconds since the previous chunk
+ * and the chunk length, both as unsigned LEB128 varints, then the chunk bytes.
+ * At serial-port rates a record is typically a few bytes longer than its chunk.
+ *
+ * Recording happens on the serial port's event thread, so writes are buffered
+ * and flushed at most once a second.  An I/O error stops the capture (with a
+ * log message) rather than disturbing the reading of the port.
+ */
+public final class SerialCapture implements AutoCloseable
+{
+	public static final String FILE_EXTENSION = ".pgcap";
+
+	private static final Logger LOG = LoggerFactory.getLogger(SerialCapture.class);
+	private static final long MAGIC = 0x5047_4341_5001_0000L;	// "PGCAP", version 1
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final Path path;
+	private DataOutputStream out;
+	private long lastChunkNanoTime;
+	private long lastFlushNanoTime;
+	private long chunkCount;
+	private long byteCount;
+
+	public SerialCapture(Path capturePath) throws IOException
+	{
+		path = capturePath;
+		out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+		out.writeLong(MAGIC);
+		out.writeLong(System.currentTimeMillis());
+		lastChunkNanoTime = System.nanoTime();
+		lastFlushNanoTime = lastChunkNanoTime;
+		chunkCount = 0;
+		byteCount = 0;
+		LOG.info("Capturing serial input to '{}'", path);
+	}
+
+	public Path getPath()
+	{
+		return path;
+	}
+
+	public synchronized void record(byte[] chunk, int offset, int length, long arrivalNanoTime)
+	{
+		if (out == null)
+		{
+			return;
+		}
+		try
+		{
+			writeVarint(out, Math.max(0, arrivalNanoTime - lastChunkNanoTime));
+			writeVarint(out, length);
+			out.write(chunk, offset, length);
+			lastChunkNanoTime = arrivalNanoTime;
+			++chunkCount;
+			byteCount += length;
+			if (arrivalNanoTime - lastFlushNanoTime >= FLUSH_INTERVAL_NANOS)
+			{
+				out.flush();
+				lastFlushNanoTime = arrivalNanoTime;
+			}
+		}
+		catch (IOException ex)
+		{
+			LOG.error("Unable to write to capture file '{}'; capture stopped", path, ex);
+			closeQuietly();
+		}
+	}
+
+	@Override
+	public synchronized void close()
+	{
+		if (out != null)
+		{
+			LOG.info("Captured {} chunks ({} bytes) to '{}'", chunkCount, byteCount, path);
+			closeQuietly();
+		}
+	}
+
+	private void closeQuietly()
+	{
+		try
+		{
+			out.close();
+		}
+		catch (IOException ex)
+		{
+			LOG.warn("Unable to close capture file '{}'", path, ex);
+		}
+		out = null;
+	}
+
+	private static void writeVarint(OutputStream out, long value) throws IOException
+	{
+		while ((value & ~0x7fL) != 0)
+		{
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarint(InputStream in) throws IOException
+	{
+		long result = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7)
+		{
+			int b = in.read();
+			if (b < 0)
+			{
+				throw new EOFException("Capture file ends within a record");
+			}
+			result |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return result;
+			}
+		}
+		throw new IOException("Malformed varint in capture file");
+	}
+
+	/*
+	 * Reads a capture file one chunk at a time.  The chunk array is reused from
+	 * one call of next() to the next.
+	 */
+	public static final class Reader implements AutoCloseable
+	{
+		private final DataInputStream in;
+		private final long captureStartEpochMs;
+		private byte[] chunk;
+		private int chunkLength;
+		private long deltaNanos;
+
+		public Reader(Path capturePath) throws IOException
+		{
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(capturePath), BUFFER_SIZE));
+			try
+			{
+				if (in.readLong() != MAGIC)
+				{
+					throw new IOException("'%1$s' is not a serial capture file".formatted(capturePath));
+				}
+				captureStartEpochMs = in.readLong();
+			}
+			catch (IOException ex)
+			{
+				in.close();
+				throw ex;
+			}
+			chunk = new byte[FrameDecoder.MAX_FRAME_LENGTH];
+			chunkLength = 0;
+			deltaNanos = 0;
+		}
+
+		public long getCaptureStartEpochMs()
+		{
+			return captureStartEpochMs;
+		}
+
+		// Returns false at the end of the capture
+		public boolean next() throws IOException
+		{
+			int first = in.read();
+			if (first < 0)
+			{
+				return false;
+			}
+			deltaNanos = ((first & 0x80) == 0)
+				? first
+				: (first & 0x7f) | (readVarint(in) << 7);
+			long length = readVarint(in);
+			if (length > Integer.MAX_VALUE)
+			{
+				throw new IOException("Malformed chunk length in capture file");
+			}
+			chunkLength = (int) length;
+			if (chunk.length < chunkLength)
+			{
+				chunk = Arrays.copyOf(chunk, Math.max(chunkLength, 2 * chunk.length));
+			}
+			in.readFully(chunk, 0, chunkLength);
+			return true;
+		}
+
+		public byte[] getChunk()
+		{
+			return chunk;
+		}
+
+		public int getChunkLength()
+		{
+			return chunkLength;
+		}
+
+		// Nanoseconds between the arrival of the previous chunk and this one
+		public long getDeltaNanos()
+		{
+			return deltaNanos;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
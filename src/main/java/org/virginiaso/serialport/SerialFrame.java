@@ -0,0 +1,86 @@
+package org.virginiaso.serialport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A read-only, zero-copy view of one NUL-delimited frame in a FrameDecoder's
+ * buffer.  The view is reused for every frame, so it is only valid for the
+ * duration of the listener callback.  Call toString() to keep a copy.
+ */
+public final class SerialFrame implements CharSequence
+{
+	private final ByteBuffer buffer;
+	private int length;
+	private long arrivalNanoTime;
+	private long completeNanoTime;
+
+	SerialFrame(ByteBuffer frameBuffer)
+	{
+		buffer = frameBuffer;
+		length = 0;
+		arrivalNanoTime = 0;
+		completeNanoTime = 0;
+	}
+
+	void reset(int frameLength, long frameArrivalNanoTime, long frameCompleteNanoTime)
+	{
+		length = frameLength;
+		arrivalNanoTime = frameArrivalNanoTime;
+		completeNanoTime = frameCompleteNanoTime;
+	}
+
+	// System.nanoTime when the serial port reported the frame's first byte
+	public long getArrivalNanoTime()
+	{
+		return arrivalNanoTime;
+	}
+
+	// System.nanoTime when the frame's terminating NUL was decoded
+	public long getCompleteNanoTime()
+	{
+		return completeNanoTime;
+	}
+
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	public byte byteAt(int index)
+	{
+		return buffer.get(checkIndex(index));
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		// The firmware only sends ASCII, which FrameDecoder enforces:
+		return (char) (buffer.get(checkIndex(index)) & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return toString().substring(start, end);
+	}
+
+	@Override
+	public String toString()
+	{
+		byte[] bytes = new byte[length];
+		buffer.get(0, bytes, 0, length);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+
+	private int checkIndex(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException(
+				"Index %1$d out of bounds for frame length %2$d".formatted(index, length));
+		}
+		return index;
+	}
+}
@@ -0,0 +1,141 @@
+package org.virginiaso.serialport;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jssc.SerialPortException;
+
+/*
+ * Probes several serial ports at once, one virtual thread per port, for an
+ * Arduino that sends a recognizable message within the heartbeat time limit.
+ * The first port to do so completes the result and every other probe closes
+ * its port immediately.  Ports that stay silent are re-probed until a winner is
+ * found or the prober is closed, unless the number of attempts per port is
+ * limited, in which case the result fails with a TimeoutException once every
+ * port has used up its attempts.
+ */
+public final class SerialPortProber implements AutoCloseable
+{
+	public static final int UNLIMITED_ATTEMPTS = 0;
+
+	private static final Logger LOG = LoggerFactory.getLogger(SerialPortProber.class);
+
+	private final List<String> portNames;
+	private final Predicate<CharSequence> isArduinoMsg;
+	private final long heartbeatTimeLimitMs;
+	private final int maxAttemptsPerPort;
+	private final CompletableFuture<String> result;
+	private final AtomicInteger numActiveProbes;
+
+	public SerialPortProber(List<String> serialPortNames, Predicate<CharSequence> isArduinoMessage,
+		long heartbeatTimeLimitMillis)
+	{
+		this(serialPortNames, isArduinoMessage, heartbeatTimeLimitMillis, UNLIMITED_ATTEMPTS);
+	}
+
+	public SerialPortProber(List<String> serialPortNames, Predicate<CharSequence> isArduinoMessage,
+		long heartbeatTimeLimitMillis, int maxAttemptsPerPort)
+	{
+		portNames = List.copyOf(serialPortNames);
+		isArduinoMsg = isArduinoMessage;
+		heartbeatTimeLimitMs = heartbeatTimeLimitMillis;
+		this.maxAttemptsPerPort = maxAttemptsPerPort;
+		result = new CompletableFuture<>();
+		numActiveProbes = new AtomicInteger(portNames.size());
+	}
+
+	// Completes with the name of the winning port, or is cancelled by close()
+	public CompletableFuture<String> start()
+	{
+		for (String portName : portNames)
+		{
+			Thread.ofVirtual()
+				.name("probe-" + portName)
+				.start(() -> probe(portName));
+		}
+		return result;
+	}
+
+	private void probe(String portName)
+	{
+		for (int attempt = 1; !result.isDone() && !isOutOfAttempts(attempt); ++attempt)
+		{
+			CompletableFuture<Void> detected = new CompletableFuture<>();
+			SerialPortReader portRdr = null;
+			try
+			{
+				portRdr = new SerialPortReader(portName, frame -> {
+					if (isArduinoMsg.test(frame))
+					{
+						detected.complete(null);
+					}
+				});
+			}
+			catch (SerialPortException ex)
+			{
+				LOG.info("Unable to probe serial port '{}': {}", portName, ex.getMessage());
+			}
+
+			awaitEither(detected);
+			close(portRdr);
+
+			// Publish the winner only after its port is closed, so the caller can reopen it:
+			if (detected.isDone())
+			{
+				result.complete(portName);
+			}
+		}
+
+		if (numActiveProbes.decrementAndGet() <= 0)
+		{
+			result.completeExceptionally(new TimeoutException(
+				"No Arduino found on serial ports %1$s".formatted(portNames)));
+		}
+	}
+
+	private boolean isOutOfAttempts(int attempt)
+	{
+		return maxAttemptsPerPort != UNLIMITED_ATTEMPTS && attempt > maxAttemptsPerPort;
+	}
+
+	// Waits for this port or another to win, but no longer than one heartbeat window
+	private void awaitEither(CompletableFuture<Void> detected)
+	{
+		try
+		{
+			CompletableFuture.anyOf(result, detected).get(heartbeatTimeLimitMs, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException | ExecutionException | CancellationException ex)
+		{
+			// Nothing to do -- the loop decides whether to retry
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			result.cancel(false);
+		}
+	}
+
+	private static void close(SerialPortReader portRdr)
+	{
+		if (portRdr != null)
+		{
+			portRdr.close();
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		result.cancel(false);
+	}
+}
@@ -1,23 +1,33 @@
 package org.virginiaso.serialport;
 
-import java.io.PrintStream;
 import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import jssc.SerialPort;
 import jssc.SerialPortException;
 
-public class SerialPortReader implements AutoCloseable
+public class SerialPortReader implements EventSource
 {
+	private static final Logger LOG = LoggerFactory.getLogger(SerialPortReader.class);
 	private static final int BAUD_RATE = SerialPort.BAUDRATE_57600;
 	private static final int DATA_BITS = SerialPort.DATABITS_8;
 	private static final int STOP_BITS = SerialPort.STOPBITS_1;
 	private static final int PARITY = SerialPort.PARITY_NONE;
 	private static final int FLOW_CTRL_MODE = SerialPort.FLOWCONTROL_RTSCTS_IN | SerialPort.FLOWCONTROL_RTSCTS_OUT;
 
-	private Consumer<String> lstnr;
+	private Consumer<SerialFrame> lstnr;
 	private SerialPort port;
 
-	public SerialPortReader(String serialPortName, Consumer<String> listener, PrintStream errorLog)
+	public SerialPortReader(String serialPortName, Consumer<SerialFrame> listener)
+		throws SerialPortException
+	{
+		this(serialPortName, listener, null);
+	}
+
+	// The capture may be null
+	public SerialPortReader(String serialPortName, Consumer<SerialFrame> listener, SerialCapture capture)
 		throws SerialPortException
 	{
 		lstnr = listener;
@@ -34,21 +44,29 @@ public class SerialPortReader implements AutoCloseable
 		{
 			throw new SerialPortException(port, "setFlowControlMode", "Unable to set serial port flow control");
 		}
-		port.addEventListener(new BufferingSerialPortListener(port, lstnr, errorLog), SerialPort.MASK_RXCHAR);
+		port.addEventListener(new BufferingSerialPortListener(port, lstnr, capture), SerialPort.MASK_RXCHAR);
 	}
 
-	public String getSerialPortName()
+	@Override
+	public String getName()
 	{
 		return port.getPortName();
 	}
 
 	@Override
-	public void close() throws SerialPortException
+	public void close()
 	{
 		if (port != null)
 		{
-			port.removeEventListener();
-			port.closePort();
+			try
+			{
+				port.removeEventListener();
+				port.closePort();
+			}
+			catch (SerialPortException ex)
+			{
+				LOG.warn("Unable to close serial port '{}'", port.getPortName(), ex);
+			}
 			port = null;
 		}
 	}
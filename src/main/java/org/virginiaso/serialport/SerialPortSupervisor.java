@@ -0,0 +1,218 @@
+package org.virginiaso.serialport;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.virginiaso.serialport.ConnectionStatus.State;
+
+import jssc.SerialPortException;
+import jssc.SerialPortList;
+
+/*
+ * Keeps a SerialPortReader alive.  The Arduino sends a heartbeat every second,
+ * so a watchdog flags the connection as stale when no frame has arrived for a
+ * configurable gap, then closes and reopens the port.  If the port has vanished
+ * (e.g., the USB cable was re-plugged and the OS assigned a new device name),
+ * all ports are probed again.  The downstream listener is unaffected, so the
+ * application keeps its state across a reconnect.
+ */
+public final class SerialPortSupervisor implements EventSource
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SerialPortSupervisor.class);
+	private static final long CHECK_INTERVAL_MS = 250;
+
+	/*
+	 * The Arduino resets when the port is opened and takes about 2.5 seconds to
+	 * start sending again, so each reconnect attempt gets this long to succeed.
+	 */
+	private static final long RECONNECT_ATTEMPT_INTERVAL_MS = 5000;
+
+	private final Consumer<SerialFrame> lstnr;
+	private final Consumer<ConnectionStatus> statusLstnr;
+	private final long staleAfterMs;
+	private final SerialCapture capture;
+	private final ScheduledExecutorService watchdog;
+	private volatile long lastFrameTime;
+	private volatile String portName;
+	private SerialPortReader portRdr;
+	private State state;
+	private long staleSinceTime;
+	private long lastReconnectAttemptTime;
+
+	// The capture may be null.  It continues across reconnects.
+	public SerialPortSupervisor(String serialPortName, Consumer<SerialFrame> listener,
+		Consumer<ConnectionStatus> statusListener, long staleAfterMillis, SerialCapture serialCapture)
+		throws SerialPortException
+	{
+		lstnr = listener;
+		statusLstnr = statusListener;
+		staleAfterMs = staleAfterMillis;
+		capture = serialCapture;
+		portName = serialPortName;
+		lastFrameTime = System.nanoTime();
+		state = State.CONNECTED;
+		portRdr = new SerialPortReader(portName, this::onFrame, capture);
+
+		watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform()
+			.name("serial-watchdog")
+			.daemon(true)
+			.unstarted(runnable));
+		watchdog.scheduleWithFixedDelay(this::checkHeartbeat, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS,
+			TimeUnit.MILLISECONDS);
+	}
+
+	private void onFrame(SerialFrame frame)
+	{
+		lastFrameTime = System.nanoTime();
+		lstnr.accept(frame);
+	}
+
+	private synchronized void checkHeartbeat()
+	{
+		try
+		{
+			long now = System.nanoTime();
+			long silenceMs = toMillis(now - lastFrameTime);
+			if (silenceMs <= staleAfterMs)
+			{
+				if (state != State.CONNECTED)
+				{
+					long latencyMs = toMillis(now - staleSinceTime);
+					LOG.info("Reconnected to serial port '{}' {} ms after it went stale", portName, latencyMs);
+					setState(State.CONNECTED, 0, latencyMs);
+				}
+			}
+			else if (state == State.CONNECTED)
+			{
+				staleSinceTime = now;
+				LOG.warn("No messages on serial port '{}' for {} ms", portName, silenceMs);
+				setState(State.STALE, silenceMs, 0);
+				reconnect(now);
+			}
+			else if (toMillis(now - lastReconnectAttemptTime) >= RECONNECT_ATTEMPT_INTERVAL_MS)
+			{
+				reconnect(now);
+			}
+		}
+		catch (RuntimeException ex)
+		{
+			// Keep the watchdog running no matter what:
+			LOG.error("Serial port watchdog failed", ex);
+		}
+	}
+
+	private void reconnect(long now)
+	{
+		ReconnectEvent jfrEvt = new ReconnectEvent();
+		jfrEvt.begin();
+		String stalePortName = portName;
+		long silenceMs = toMillis(now - lastFrameTime);
+		lastReconnectAttemptTime = now;
+		setState(State.RECONNECTING, silenceMs, 0);
+		closeReader();
+		boolean succeeded = reopen();
+
+		if (jfrEvt.shouldCommit())
+		{
+			jfrEvt.portName = stalePortName;
+			jfrEvt.newPortName = portName;
+			jfrEvt.silenceMs = silenceMs;
+			jfrEvt.succeeded = succeeded;
+			jfrEvt.commit();
+		}
+	}
+
+	private boolean reopen()
+	{
+		List<String> availablePorts = List.of(SerialPortList.getPortNames());
+		if (!availablePorts.contains(portName))
+		{
+			String rediscoveredPort = rediscover(availablePorts);
+			if (rediscoveredPort == null)
+			{
+				return false;
+			}
+			LOG.info("Serial port '{}' is gone; the Arduino is now on '{}'", portName, rediscoveredPort);
+			portName = rediscoveredPort;
+		}
+
+		try
+		{
+			portRdr = new SerialPortReader(portName, this::onFrame, capture);
+			return true;
+		}
+		catch (SerialPortException ex)
+		{
+			LOG.warn("Unable to reopen serial port '{}': {}", portName, ex.getMessage());
+			return false;
+		}
+	}
+
+	private String rediscover(List<String> availablePorts)
+	{
+		if (availablePorts.isEmpty())
+		{
+			return null;
+		}
+		try (SerialPortProber prober = new SerialPortProber(availablePorts, msg -> ArduinoEvent.parse(msg) != null,
+			RECONNECT_ATTEMPT_INTERVAL_MS, 1))
+		{
+			return prober.start().get();
+		}
+		catch (ExecutionException ex)
+		{
+			if (!(ex.getCause() instanceof TimeoutException))
+			{
+				LOG.error("Unable to rediscover the Arduino", ex.getCause());
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+
+	private void setState(State newState, long silenceMs, long reconnectLatencyMs)
+	{
+		state = newState;
+		statusLstnr.accept(new ConnectionStatus(newState, portName, silenceMs, reconnectLatencyMs));
+	}
+
+	private static long toMillis(long nanos)
+	{
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	private void closeReader()
+	{
+		if (portRdr != null)
+		{
+			portRdr.close();
+			portRdr = null;
+		}
+	}
+
+	@Override
+	public String getName()
+	{
+		return portName;
+	}
+
+	@Override
+	public void close()
+	{
+		watchdog.shutdownNow();
+		synchronized (this)
+		{
+			closeReader();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package org.virginiaso.serialport;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("org.virginiaso.SerialRead")
+@Label("Serial Read")
+@Category({ "Photogator", "Serial Port" })
+@Description("One read of the bytes available on the serial port, and their decoding into frames")
+@StackTrace(false)
+final class SerialReadEvent extends jdk.jfr.Event
+{
+	@Label("Port")
+	String portName;
+
+	@Label("Bytes Read")
+	@DataAmount
+	int byteCount;
+}
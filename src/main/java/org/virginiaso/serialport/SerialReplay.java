@@ -0,0 +1,174 @@
+package org.virginiaso.serialport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Plays a SerialCapture file back through a FrameDecoder, so that the frames
+ * reach the listener just as they did when the capture was recorded.  The
+ * replay is selected by a spec of the form
+ *
+ *    replay:<capture file>         in real time
+ *    replay@<N>:<capture file>     at N times real time, e.g., replay@4:...
+ *    replay@max:<capture file>     as fast as the listener can keep up
+ *
+ * Each chunk is stamped with its arrival time during the replay, so the latency
+ * metrics measure this run.  The Arduino timestamps within the frames are
+ * unchanged, so timing results are identical at any speed.
+ */
+public final class SerialReplay implements EventSource
+{
+	public static final String SPEC_PREFIX = "replay";
+
+	private static final Logger LOG = LoggerFactory.getLogger(SerialReplay.class);
+	private static final String MAX_SPEED = "max";
+	private static final double NANOS_PER_SEC = 1e9;
+
+	private final String spec;
+	private final Path capturePath;
+	private final double speed;	// Infinite for as fast as possible
+	private final FrameDecoder decoder;
+	private final CompletableFuture<Void> completion;
+	private final Thread thread;
+	private volatile boolean isRunning;
+
+	public static boolean isReplaySpec(String sourceName)
+	{
+		if (sourceName == null
+			|| !sourceName.regionMatches(true, 0, SPEC_PREFIX, 0, SPEC_PREFIX.length()))
+		{
+			return false;
+		}
+		return sourceName.startsWith(":", SPEC_PREFIX.length()) || sourceName.startsWith("@", SPEC_PREFIX.length());
+	}
+
+	// Throws IllegalArgumentException if the spec is malformed
+	public SerialReplay(String replaySpec, Consumer<SerialFrame> listener)
+	{
+		if (!isReplaySpec(replaySpec))
+		{
+			throw new IllegalArgumentException("Replay spec must start with '%1$s:' or '%1$s@'".formatted(SPEC_PREFIX));
+		}
+		spec = replaySpec.strip();
+		int colon = spec.indexOf(':');
+		if (colon < 0 || colon == spec.length() - 1)
+		{
+			throw new IllegalArgumentException("Replay spec '%1$s' has no capture file".formatted(spec));
+		}
+		speed = parseSpeed(spec.substring(SPEC_PREFIX.length(), colon));
+		capturePath = Path.of(spec.substring(colon + 1));
+		if (!Files.isReadable(capturePath))
+		{
+			throw new IllegalArgumentException("Capture file '%1$s' is not readable".formatted(capturePath));
+		}
+
+		decoder = new FrameDecoder(listener);
+		completion = new CompletableFuture<>();
+		isRunning = true;
+		thread = Thread.ofPlatform()
+			.name("serial-replay")
+			.daemon(true)
+			.start(this::run);
+	}
+
+	private static double parseSpeed(String speedSpec)
+	{
+		if (speedSpec.isEmpty())
+		{
+			return 1.0;
+		}
+		String value = speedSpec.substring(1).strip();	// Skip the '@'
+		if (MAX_SPEED.equalsIgnoreCase(value))
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		double result = Double.parseDouble(value);
+		if (!(result > 0))
+		{
+			throw new IllegalArgumentException("Replay speed '%1$s' must be positive".formatted(value));
+		}
+		return result;
+	}
+
+	private void run()
+	{
+		LOG.info("Replaying '{}' at {}", capturePath, Double.isInfinite(speed) ? "maximum speed" : speed + "x speed");
+		long chunkCount = 0;
+		long byteCount = 0;
+		long startTime = System.nanoTime();
+		try (SerialCapture.Reader rdr = new SerialCapture.Reader(capturePath))
+		{
+			double capturedNanos = 0;
+			while (isRunning && rdr.next())
+			{
+				if (!Double.isInfinite(speed))
+				{
+					capturedNanos += rdr.getDeltaNanos();
+					waitUntil(startTime + (long) (capturedNanos / speed));
+				}
+				decoder.decode(rdr.getChunk(), 0, rdr.getChunkLength(), System.nanoTime());
+				++chunkCount;
+				byteCount += rdr.getChunkLength();
+			}
+			long elapsedNanos = System.nanoTime() - startTime;
+			LOG.info("Replayed {} chunks ({} bytes, {} frames) in {} ms: {} frames/s",
+				chunkCount, byteCount, decoder.getFrameCount(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+				"%1$.0f".formatted(decoder.getFrameCount() * NANOS_PER_SEC / Math.max(1, elapsedNanos)));
+			completion.complete(null);
+		}
+		catch (IOException | RuntimeException ex)
+		{
+			LOG.error("Replay of '{}' failed after {} chunks", capturePath, chunkCount, ex);
+			completion.completeExceptionally(ex);
+		}
+	}
+
+	private void waitUntil(long targetNanoTime)
+	{
+		for (long remaining = targetNanoTime - System.nanoTime(); isRunning && remaining > 0;
+			remaining = targetNanoTime - System.nanoTime())
+		{
+			LockSupport.parkNanos(remaining);
+		}
+	}
+
+	// Completes when the whole capture has been replayed
+	public CompletableFuture<Void> getCompletion()
+	{
+		return completion;
+	}
+
+	public FrameDecoder getDecoder()
+	{
+		return decoder;
+	}
+
+	@Override
+	public String getName()
+	{
+		return spec;
+	}
+
+	@Override
+	public void close()
+	{
+		isRunning = false;
+		LockSupport.unpark(thread);
+		try
+		{
+			thread.join(TimeUnit.SECONDS.toMillis(1));
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
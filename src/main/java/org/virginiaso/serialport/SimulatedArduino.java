@@ -0,0 +1,199 @@
+package org.virginiaso.serialport;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * An in-process stand-in for the photogate Arduino, for exercising the host
+ * without hardware.  It generates the firmware's exact byte protocol --
+ * "HeartBeat:<ms>" and "BeamBroken:<seq>,<pin>,<ms>", each terminated by a NUL
+ * -- and feeds it through a FrameDecoder in chunks, as a serial port would.
+ * The simulation is configured by a spec of the form
+ *
+ *    sim:rate=<beam breaks per second>,burst=<breaks per burst>,pins=<pin>/<pin>/...,
+ *       heartbeat=<ms>,chunk=<max bytes per read>
+ *
+ * where every setting is optional.  Beam breaks cycle through the pins in the
+ * order given, so with the pins in course order every cycle is a complete run.
+ * Breaks are emitted in bursts of the given size, with the bursts spaced so
+ * that the average rate is as given.
+ */
+public final class SimulatedArduino implements EventSource
+{
+	public static final String SPEC_PREFIX = "sim:";
+
+	private static final Logger LOG = LoggerFactory.getLogger(SimulatedArduino.class);
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long ARDUINO_MILLIS_MASK = 0xffff_ffffL;
+
+	private final String spec;
+	private final double beamBreaksPerSec;
+	private final int burstSize;
+	private final int[] pins;
+	private final long heartbeatIntervalMs;
+	private final int maxChunkSize;
+	private final FrameDecoder decoder;
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final Thread thread;
+	private volatile boolean isRunning;
+	private long seqNum;
+
+	public static boolean isSimulationSpec(String sourceName)
+	{
+		return sourceName != null && sourceName.regionMatches(true, 0, SPEC_PREFIX, 0, SPEC_PREFIX.length());
+	}
+
+	// Throws IllegalArgumentException if the spec is malformed
+	public SimulatedArduino(String simulationSpec, Consumer<SerialFrame> listener)
+	{
+		if (!isSimulationSpec(simulationSpec))
+		{
+			throw new IllegalArgumentException("Simulation spec must start with '%1$s'".formatted(SPEC_PREFIX));
+		}
+		spec = simulationSpec.strip();
+		double rate = 1.0;
+		int burst = 1;
+		int[] pinList = { 2, 3 };
+		long heartbeat = 1000;
+		int chunk = 64;
+		for (String setting : spec.substring(SPEC_PREFIX.length()).split(","))
+		{
+			if (setting.isBlank())
+			{
+				continue;
+			}
+			int eq = setting.indexOf('=');
+			if (eq < 0)
+			{
+				throw new IllegalArgumentException("Simulation setting '%1$s' has no value".formatted(setting));
+			}
+			String key = setting.substring(0, eq).strip();
+			String value = setting.substring(eq + 1).strip();
+			switch (key)
+			{
+				case "rate" -> rate = Double.parseDouble(value);
+				case "burst" -> burst = Integer.parseInt(value);
+				case "pins" -> pinList = parsePins(value);
+				case "heartbeat" -> heartbeat = Long.parseLong(value);
+				case "chunk" -> chunk = Integer.parseInt(value);
+				default -> throw new IllegalArgumentException(
+					"Unknown simulation setting '%1$s'".formatted(key));
+			}
+		}
+		if (rate < 0 || burst < 1 || pinList.length == 0 || heartbeat < 1 || chunk < 1)
+		{
+			throw new IllegalArgumentException("Simulation spec '%1$s' is out of range".formatted(spec));
+		}
+
+		beamBreaksPerSec = rate;
+		burstSize = burst;
+		pins = pinList;
+		heartbeatIntervalMs = heartbeat;
+		maxChunkSize = chunk;
+		decoder = new FrameDecoder(listener);
+		seqNum = 0;
+		isRunning = true;
+		thread = Thread.ofPlatform()
+			.name("simulated-arduino")
+			.daemon(true)
+			.start(this::run);
+	}
+
+	private static int[] parsePins(String value)
+	{
+		List<Integer> pinList = new ArrayList<>();
+		for (String pin : value.split("/"))
+		{
+			pinList.add(Integer.valueOf(pin.strip()));
+		}
+		return pinList.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private void run()
+	{
+		LOG.info("Simulating an Arduino: {}", spec);
+		long startTime = System.nanoTime();
+		long nextHeartbeatMs = 0;
+		long burstsEmitted = 0;
+		double burstsPerSec = beamBreaksPerSec / burstSize;
+		while (isRunning)
+		{
+			long elapsedNanos = System.nanoTime() - startTime;
+			long nowMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+			if (nowMs >= nextHeartbeatMs)
+			{
+				appendMsg("HeartBeat:" + (nowMs & ARDUINO_MILLIS_MASK));
+				nextHeartbeatMs = nowMs + heartbeatIntervalMs;
+			}
+
+			long burstsDue = (long) (elapsedNanos / 1e9 * burstsPerSec);
+			for (; burstsEmitted < burstsDue; ++burstsEmitted)
+			{
+				for (int i = 0; i < burstSize; ++i)
+				{
+					++seqNum;
+					int pin = pins[(int) ((seqNum - 1) % pins.length)];
+					appendMsg("BeamBroken:" + seqNum + "," + pin + "," + (nowMs & ARDUINO_MILLIS_MASK));
+				}
+			}
+
+			deliverPending();
+			LockSupport.parkNanos(TICK_NANOS);
+		}
+	}
+
+	private void appendMsg(String msg)
+	{
+		pending.writeBytes(msg.getBytes(StandardCharsets.US_ASCII));
+		pending.write(0);
+	}
+
+	// Hands the pending bytes to the decoder in serial-port-sized reads
+	private void deliverPending()
+	{
+		if (pending.size() == 0)
+		{
+			return;
+		}
+		byte[] bytes = pending.toByteArray();
+		pending.reset();
+		long arrivalNanoTime = System.nanoTime();
+		for (int offset = 0; offset < bytes.length; offset += maxChunkSize)
+		{
+			decoder.decode(bytes, offset, Math.min(maxChunkSize, bytes.length - offset), arrivalNanoTime);
+		}
+	}
+
+	public FrameDecoder getDecoder()
+	{
+		return decoder;
+	}
+
+	@Override
+	public String getName()
+	{
+		return spec;
+	}
+
+	@Override
+	public void close()
+	{
+		isRunning = false;
+		try
+		{
+			thread.join(TimeUnit.SECONDS.toMillis(1));
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package org.virginiaso.serialport;
+
+public class UnrecognizedMsgEvent extends ArduinoEvent
+{
+	private static final String MSG_FMT = "Error: Unrecognized message format:  \"%1$s\"%n";
+
+	private final String msg;
+
+	public UnrecognizedMsgEvent(CharSequence message)
+	{
+		msg = message.toString();
+	}
+
+	public String getMsg()
+	{
+		return msg;
+	}
+
+	@Override
+	public String format()
+	{
+		return MSG_FMT.formatted(msg);
+	}
+
+	@Override
+	public String formatMsg()
+	{
+		return msg;
+	}
+}
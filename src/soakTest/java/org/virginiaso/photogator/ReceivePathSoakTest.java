@@ -0,0 +1,521 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.FrameDecoder;
+import org.virginiaso.serialport.HeartBeatEvent;
+import org.virginiaso.serialport.SerialFrame;
+
+/*
+ * A fault-injection soak test of the receive path:  FrameDecoder, then
+ * ArduinoEvent.parse, then the SpscRingBuffer hand-off to a consumer thread, as
+ * in the application.  A generator produces rounds of well-formed messages with
+ * faults injected at random -- dropped NULs, truncated frames, bit flips,
+ * oversized frames, and bursts of line noise -- and feeds each round to the
+ * decoder in randomly sized reads.  A naive reference splitter computes what the
+ * decoder must deliver for each round, so every frame, every drop count, and
+ * every resynchronization is checked exactly.  Every few rounds, the bytes
+ * around one fault are also decoded split into two reads at every possible
+ * byte boundary.
+ *
+ * The run lasts for the time budget (-Dsoak.minutes) and fails if any frame or
+ * count is wrong, if decoding throughput falls below -Dsoak.min.mb.per.sec, if
+ * the live heap grows by more than -Dsoak.max.heap.growth.mb, or if either
+ * thread dies.  Pass -Dsoak.seed to reproduce a run.  The default budget is
+ * short enough for every build; run a long soak with, e.g.,
+ * './gradlew soakTest -Psoak.minutes=240'.
+ */
+class ReceivePathSoakTest
+{
+	private enum Fault
+	{
+		DROPPED_NUL, TRUNCATED, BIT_FLIP, OVERSIZED, NOISE
+	}
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReceivePathSoakTest.class);
+	private static final String MINUTES_PROP = "soak.minutes";
+	private static final String SEED_PROP = "soak.seed";
+	private static final String MIN_THROUGHPUT_PROP = "soak.min.mb.per.sec";
+	private static final String MAX_HEAP_GROWTH_PROP = "soak.max.heap.growth.mb";
+	private static final double DEFAULT_MINUTES = 0.25;
+	private static final double DEFAULT_MIN_MB_PER_SEC = 1.0;	// Low enough for a short run, mostly in the JIT warmup
+	private static final long DEFAULT_MAX_HEAP_GROWTH_MB = 32;
+	private static final int MSGS_PER_ROUND = 64;
+	private static final double FAULT_PROBABILITY = 0.05;
+	private static final int GUARD_MSG_COUNT = 2;	// Clean messages after each fault
+	private static final int MAX_CHUNK_SIZE = 64;
+	private static final int SPLIT_CHECK_INTERVAL_ROUNDS = 8;
+	private static final int QUEUE_CAPACITY = 4096;
+	private static final int MAX_REPORTED_MISMATCHES = 10;
+	private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+	private static final double BYTES_PER_MB = 1_000_000.0;
+
+	private final long seed;
+	private final Random rand;
+	private final long budgetNanos;
+	private final double minMBPerSec;
+	private final long maxHeapGrowthBytes;
+	private final List<String> failures = new ArrayList<>();
+	private final Queue<Throwable> threadDeaths = new ConcurrentLinkedQueue<>();
+	private final SpscRingBuffer<ArduinoEvent> queue = new SpscRingBuffer<>(QUEUE_CAPACITY);
+	private final int[] pins;
+
+	// Generator state, on the receiver thread:
+	private final ByteArrayOutputStream roundBytes = new ByteArrayOutputStream();
+	private final long[] faultCounts = new long[Fault.values().length];
+	private long seqNum;
+	private long arduinoTime;
+	private int windowStart;
+	private int windowEnd;
+
+	// Decoder-side state, on the receiver thread:
+	private final FrameDecoder decoder;
+	private List<String> expectedFrames;
+	private int nextExpectedFrame;
+	private long mismatchCount;
+	private long parsedCount;
+	private long unparsedCount;
+	private long offeredCount;
+	private long fullQueueWaitCount;
+	private long decodeNanos;
+	private volatile long decodedBytes;	// Also read by the main thread for progress reports
+	private long splitCheckCount;
+
+	// Expected totals, from the reference splitter:
+	private long expectedFrameCount;
+	private long expectedOversizeCount;
+	private long expectedGarbledCount;
+	private long expectedParsedCount;
+	private long expectedUnparsedCount;
+
+	// Consumer state:
+	private volatile boolean isReceiverDone;
+	private volatile long consumedCount;
+
+	private record Expected(List<String> frames, long oversizeCount, long garbledCount)
+	{
+	}
+
+	@BeforeAll
+	static void registerMsgTypes()
+	{
+		ArduinoEvent.registerMsgType(HeartBeatEvent.MSG_PREFIX, HeartBeatEvent::create);
+		ArduinoEvent.registerMsgType(BeamBrokenEvent.MSG_PREFIX, BeamBrokenEvent::create);
+	}
+
+	ReceivePathSoakTest()
+	{
+		seed = Long.getLong(SEED_PROP, System.nanoTime());
+		rand = new Random(seed);
+		budgetNanos = (long) (TimeUnit.MINUTES.toNanos(1)
+			* Double.parseDouble(System.getProperty(MINUTES_PROP, Double.toString(DEFAULT_MINUTES))));
+		minMBPerSec = Double.parseDouble(System.getProperty(MIN_THROUGHPUT_PROP,
+			Double.toString(DEFAULT_MIN_MB_PER_SEC)));
+		maxHeapGrowthBytes = Long.getLong(MAX_HEAP_GROWTH_PROP, DEFAULT_MAX_HEAP_GROWTH_MB) * 1024 * 1024;
+		pins = SensorId.getCourse().stream().mapToInt(SensorId::getIdNum).toArray();
+		decoder = new FrameDecoder(this::onFrame);
+		seqNum = 0;
+		arduinoTime = 0;
+		isReceiverDone = false;
+		consumedCount = 0;
+	}
+
+	@Test
+	void receivePathSurvivesInjectedFaults()
+	{
+		LOG.info("Soaking the receive path for {} minutes with seed {}",
+			"%1$.1f".formatted(budgetNanos / (double) TimeUnit.MINUTES.toNanos(1)), seed);
+		Thread receiver = Thread.ofPlatform()
+			.name("soak-receiver")
+			.uncaughtExceptionHandler((_, ex) -> threadDeaths.add(ex))
+			.start(this::receive);
+		Thread consumer = Thread.ofPlatform()
+			.name("soak-consumer")
+			.uncaughtExceptionHandler((_, ex) -> threadDeaths.add(ex))
+			.start(this::consume);
+
+		long startTime = System.nanoTime();
+		List<Long> heapSamples = new ArrayList<>();
+		try
+		{
+			while (receiver.isAlive())
+			{
+				receiver.join(TimeUnit.NANOSECONDS.toMillis(REPORT_INTERVAL_NANOS));
+				long heapUsed = getLiveHeapBytes();
+				heapSamples.add(heapUsed);
+				LOG.info("{} s: {} MB decoded, live heap {} MB",
+					TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime),
+					"%1$.1f".formatted(decodedBytes / BYTES_PER_MB),
+					"%1$.1f".formatted(heapUsed / BYTES_PER_MB));
+			}
+			isReceiverDone = true;
+			consumer.join(TimeUnit.SECONDS.toMillis(10));
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			failures.add("Interrupted");
+		}
+
+		verify(consumer, heapSamples);
+		report();
+		if (!failures.isEmpty())
+		{
+			fail("Soak failed (seed %1$d):%n   %2$s".formatted(seed, String.join("%n   ".formatted(), failures)));
+		}
+	}
+
+	private void receive()
+	{
+		long endTime = System.nanoTime() + budgetNanos;
+		for (long roundNum = 0; System.nanoTime() < endTime; ++roundNum)
+		{
+			byte[] round = generateRound();
+			Expected expected = referenceSplit(round, 0, round.length);
+			expectedFrames = expected.frames();
+			nextExpectedFrame = 0;
+			expectedFrameCount += expected.frames().size();
+			expectedOversizeCount += expected.oversizeCount();
+			expectedGarbledCount += expected.garbledCount();
+			for (String frame : expected.frames())
+			{
+				if (ArduinoEvent.parse(frame) == null)
+				{
+					++expectedUnparsedCount;
+				}
+				else
+				{
+					++expectedParsedCount;
+				}
+			}
+
+			long decodeStart = System.nanoTime();
+			for (int offset = 0; offset < round.length;)
+			{
+				int chunkSize = Math.min(1 + rand.nextInt(MAX_CHUNK_SIZE), round.length - offset);
+				decoder.decode(round, offset, chunkSize, System.nanoTime());
+				offset += chunkSize;
+			}
+			decodeNanos += System.nanoTime() - decodeStart;
+			decodedBytes += round.length;
+			if (nextExpectedFrame != expectedFrames.size())
+			{
+				recordMismatch("Round %1$d: decoded %2$d frames, expected %3$d".formatted(
+					roundNum, nextExpectedFrame, expectedFrames.size()));
+			}
+
+			if (roundNum % SPLIT_CHECK_INTERVAL_ROUNDS == 0 && windowEnd > windowStart)
+			{
+				checkEverySplit(Arrays.copyOfRange(round, windowStart, windowEnd));
+			}
+		}
+	}
+
+	// Runs on the receiver thread, within decoder.decode
+	private void onFrame(SerialFrame frame)
+	{
+		if (nextExpectedFrame >= expectedFrames.size()
+			|| !expectedFrames.get(nextExpectedFrame).contentEquals(frame))
+		{
+			recordMismatch("Decoded '%1$s', expected '%2$s'".formatted(frame,
+				(nextExpectedFrame < expectedFrames.size()) ? expectedFrames.get(nextExpectedFrame) : "nothing"));
+		}
+		++nextExpectedFrame;
+
+		ArduinoEvent evt = ArduinoEvent.parse(frame);
+		if (evt == null)
+		{
+			++unparsedCount;
+			return;
+		}
+		++parsedCount;
+		while (!queue.offer(evt))
+		{
+			++fullQueueWaitCount;
+			Thread.onSpinWait();
+		}
+		++offeredCount;
+	}
+
+	private void recordMismatch(String description)
+	{
+		if (++mismatchCount <= MAX_REPORTED_MISMATCHES)
+		{
+			LOG.error(description);
+		}
+	}
+
+	private void consume()
+	{
+		long count = 0;
+		for (;;)
+		{
+			boolean isDone = isReceiverDone;
+			ArduinoEvent evt = queue.poll();
+			if (evt != null)
+			{
+				if (evt instanceof BeamBrokenEvent bbEvt && bbEvt.getSensorId() == null)
+				{
+					throw new IllegalStateException("Beam-broken event without a sensor");
+				}
+				consumedCount = ++count;
+			}
+			else if (isDone)
+			{
+				return;
+			}
+			else
+			{
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+			}
+		}
+	}
+
+	/*
+	 * Generates one round of messages.  Each fault is followed by clean guard
+	 * messages, so a round always ends on a clean NUL and the decoder starts the
+	 * next round synchronized.  The bytes from the round's first fault through
+	 * its guards are remembered for checkEverySplit.
+	 */
+	private byte[] generateRound()
+	{
+		roundBytes.reset();
+		windowStart = 0;
+		windowEnd = 0;
+		int cleanMsgsNeeded = 0;
+		for (int i = 0; i < MSGS_PER_ROUND; ++i)
+		{
+			byte[] msg = nextMsg();
+			boolean canInjectFault = cleanMsgsNeeded == 0 && i < MSGS_PER_ROUND - GUARD_MSG_COUNT;
+			if (canInjectFault && rand.nextDouble() < FAULT_PROBABILITY)
+			{
+				if (windowEnd == 0)
+				{
+					windowStart = roundBytes.size();
+				}
+				injectFault(msg);
+				cleanMsgsNeeded = GUARD_MSG_COUNT;
+			}
+			else
+			{
+				roundBytes.writeBytes(msg);
+				if (cleanMsgsNeeded > 0 && --cleanMsgsNeeded == 0 && windowEnd == 0)
+				{
+					windowEnd = roundBytes.size();
+				}
+			}
+		}
+		return roundBytes.toByteArray();
+	}
+
+	// Returns a well-formed message, including its NUL terminator
+	private byte[] nextMsg()
+	{
+		arduinoTime += 1 + rand.nextInt(500);
+		String msg = (rand.nextInt(4) == 0)
+			? HeartBeatEvent.MSG_PREFIX + ":" + arduinoTime
+			: BeamBrokenEvent.MSG_PREFIX + (++seqNum) + "," + pins[rand.nextInt(pins.length)] + "," + arduinoTime;
+		byte[] result = Arrays.copyOf(msg.getBytes(StandardCharsets.US_ASCII), msg.length() + 1);
+		result[msg.length()] = 0;
+		return result;
+	}
+
+	private void injectFault(byte[] msg)
+	{
+		Fault fault = Fault.values()[rand.nextInt(Fault.values().length)];
+		++faultCounts[fault.ordinal()];
+		int msgLength = msg.length - 1;	// Without the NUL
+		switch (fault)
+		{
+			case DROPPED_NUL -> roundBytes.write(msg, 0, msgLength);
+			case TRUNCATED ->
+			{
+				roundBytes.write(msg, 0, 1 + rand.nextInt(msgLength - 1));
+				roundBytes.write(0);
+			}
+			case BIT_FLIP ->
+			{
+				msg[rand.nextInt(msg.length)] ^= (byte) (1 << rand.nextInt(Byte.SIZE));
+				roundBytes.writeBytes(msg);
+			}
+			case OVERSIZED ->
+			{
+				int length = FrameDecoder.MAX_FRAME_LENGTH + 1 + rand.nextInt(3 * FrameDecoder.MAX_FRAME_LENGTH);
+				for (int i = 0; i < length; ++i)
+				{
+					roundBytes.write(0x20 + rand.nextInt(0x7f - 0x20));
+				}
+				roundBytes.write(0);
+			}
+			case NOISE ->
+			{
+				byte[] noise = new byte[1 + rand.nextInt(32)];
+				rand.nextBytes(noise);
+				roundBytes.writeBytes(noise);
+			}
+		}
+	}
+
+	/*
+	 * The reference for what FrameDecoder must do, written for obviousness
+	 * rather than speed:  split at NULs, drop empty frames, count and drop
+	 * frames that are too long or contain non-printable bytes.
+	 */
+	private static Expected referenceSplit(byte[] bytes, int offset, int length)
+	{
+		List<String> frames = new ArrayList<>();
+		long oversizeCount = 0;
+		long garbledCount = 0;
+		int frameStart = offset;
+		for (int i = offset; i < offset + length; ++i)
+		{
+			if (bytes[i] != 0)
+			{
+				continue;
+			}
+			int frameLength = i - frameStart;
+			if (frameLength > FrameDecoder.MAX_FRAME_LENGTH)
+			{
+				++oversizeCount;
+			}
+			else if (frameLength > 0)
+			{
+				boolean isPrintable = true;
+				for (int j = frameStart; j < i; ++j)
+				{
+					isPrintable &= (bytes[j] >= 0x20 && bytes[j] <= 0x7e);
+				}
+				if (isPrintable)
+				{
+					frames.add(new String(bytes, frameStart, frameLength, StandardCharsets.US_ASCII));
+				}
+				else
+				{
+					++garbledCount;
+				}
+			}
+			frameStart = i + 1;
+		}
+		return new Expected(frames, oversizeCount, garbledCount);
+	}
+
+	// Decodes the window as two reads, split at every possible byte boundary
+	private void checkEverySplit(byte[] window)
+	{
+		Expected expected = referenceSplit(window, 0, window.length);
+		List<String> frames = new ArrayList<>();
+		FrameDecoder splitDecoder = new FrameDecoder(frame -> frames.add(frame.toString()));
+		for (int split = 1; split < window.length; ++split)
+		{
+			frames.clear();
+			long oversizeBefore = splitDecoder.getOversizeFrameCount();
+			long garbledBefore = splitDecoder.getGarbledFrameCount();
+			splitDecoder.decode(window, 0, split);
+			splitDecoder.decode(window, split, window.length - split);
+			if (!frames.equals(expected.frames())
+				|| splitDecoder.getOversizeFrameCount() - oversizeBefore != expected.oversizeCount()
+				|| splitDecoder.getGarbledFrameCount() - garbledBefore != expected.garbledCount())
+			{
+				recordMismatch("Split at byte %1$d of %2$d decoded %3$s, expected %4$s".formatted(
+					split, window.length, frames, expected.frames()));
+			}
+		}
+		++splitCheckCount;
+	}
+
+	// Collects garbage first, so that the result is the live heap rather than the GC's timing
+	private static long getLiveHeapBytes()
+	{
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		memory.gc();
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private void verify(Thread consumer, List<Long> heapSamples)
+	{
+		for (Throwable ex : threadDeaths)
+		{
+			LOG.error("A soak thread died", ex);
+			failures.add("Thread death: " + ex);
+		}
+		if (consumer.isAlive())
+		{
+			failures.add("The consumer thread did not finish");
+		}
+		checkEqual("Frame mismatches", mismatchCount, 0);
+		checkEqual("Delivered frames", decoder.getFrameCount(), expectedFrameCount);
+		checkEqual("Oversize frames", decoder.getOversizeFrameCount(), expectedOversizeCount);
+		checkEqual("Garbled frames", decoder.getGarbledFrameCount(), expectedGarbledCount);
+		checkEqual("Listener failures", decoder.getListenerFailureCount(), 0);
+		checkEqual("Parsed messages", parsedCount, expectedParsedCount);
+		checkEqual("Unparsed messages", unparsedCount, expectedUnparsedCount);
+		checkEqual("Consumed events", consumedCount, offeredCount);
+
+		double mbPerSec = decodedBytes / BYTES_PER_MB / Math.max(1e-9, decodeNanos / 1e9);
+		if (mbPerSec < minMBPerSec)
+		{
+			failures.add("Throughput %1$.2f MB/s is below the minimum of %2$.2f MB/s".formatted(
+				mbPerSec, minMBPerSec));
+		}
+
+		if (heapSamples.size() >= 2)
+		{
+			long baseline = heapSamples.getFirst();
+			long peak = heapSamples.stream().mapToLong(Long::longValue).max().orElse(baseline);
+			if (peak - baseline > maxHeapGrowthBytes)
+			{
+				failures.add("Live heap grew from %1$.1f MB to %2$.1f MB".formatted(
+					baseline / BYTES_PER_MB, peak / BYTES_PER_MB));
+			}
+		}
+	}
+
+	private void checkEqual(String what, long actual, long expected)
+	{
+		if (actual != expected)
+		{
+			failures.add("%1$s: %2$d, expected %3$d".formatted(what, actual, expected));
+		}
+	}
+
+	private void report()
+	{
+		StringBuilder faults = new StringBuilder();
+		for (Fault fault : Fault.values())
+		{
+			faults.append(' ').append(fault).append('=').append(faultCounts[fault.ordinal()]);
+		}
+		LOG.info("Decoded {} MB at {} MB/s; {} frames, {} oversize, {} garbled, {} unparsed; "
+			+ "{} events consumed; {} queue-full waits; {} split checks; faults:{}",
+			"%1$.1f".formatted(decodedBytes / BYTES_PER_MB),
+			"%1$.2f".formatted(decodedBytes / BYTES_PER_MB / Math.max(1e-9, decodeNanos / 1e9)),
+			decoder.getFrameCount(), decoder.getOversizeFrameCount(), decoder.getGarbledFrameCount(),
+			unparsedCount, consumedCount, fullQueueWaitCount, splitCheckCount, faults);
+		if (failures.isEmpty())
+		{
+			LOG.info("Soak PASSED (seed {})", seed);
+		}
+		else
+		{
+			failures.forEach(failure -> LOG.error("Soak FAILED: {}", failure));
+		}
+	}
+}
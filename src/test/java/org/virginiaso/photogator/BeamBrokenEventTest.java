@@ -0,0 +1,45 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.virginiaso.serialport.ArduinoEvent;
+
+class BeamBrokenEventTest
+{
+	@BeforeAll
+	static void registerMsgTypes()
+	{
+		ArduinoEvent.registerMsgType(BeamBrokenEvent.MSG_PREFIX, BeamBrokenEvent::create);
+	}
+
+	@Test
+	void parsesItsFields()
+	{
+		BeamBrokenEvent evt = assertInstanceOf(BeamBrokenEvent.class, ArduinoEvent.parse("BeamBroken:17,3,4567"));
+		assertEquals(17, evt.getSeqNum());
+		assertEquals(SensorId.getById(3), evt.getSensorId());
+		assertEquals(4567, evt.getArduinoTime());
+		assertEquals("BeamBroken:17,3,4567", evt.formatMsg());
+	}
+
+	@Test
+	void rejectsMalformedMessages()
+	{
+		assertNull(ArduinoEvent.parse("BeamBroken:"));
+		assertNull(ArduinoEvent.parse("BeamBroken:17,3"));
+		assertNull(ArduinoEvent.parse("BeamBroken:17,,4567"));
+		assertNull(ArduinoEvent.parse("BeamBroken:17,3,45x7"));
+		assertNull(ArduinoEvent.parse("BeamBroken:-17,3,4567"));
+	}
+
+	@Test
+	void rejectsPinsNotOnTheCourse()
+	{
+		assertNull(ArduinoEvent.parse("BeamBroken:17,9,4567"));
+		assertNull(ArduinoEvent.parse("BeamBroken:17,99999,4567"));
+	}
+}
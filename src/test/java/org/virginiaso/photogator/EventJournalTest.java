@@ -0,0 +1,194 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.virginiaso.serialport.ArduinoEvent;
+
+class EventJournalTest
+{
+	private static final ElapsedTimeComputeMethod METHOD = ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS;
+
+	@TempDir
+	Path tempDir;
+
+	private File journalFile;
+
+	private static final class RecordingHandler implements EventJournal.ReplayHandler
+	{
+		private final List<String> records = new ArrayList<>();
+
+		@Override
+		public void onEvent(ArduinoEvent evt)
+		{
+			records.add("E %1$d:%2$d %3$s".formatted(evt.getClockEpoch(), evt.getTimelineTime(), evt.formatMsg()));
+		}
+
+		@Override
+		public void onReady()
+		{
+			records.add("R");
+		}
+
+		@Override
+		public void onComputeMethod(ElapsedTimeComputeMethod computeMethod)
+		{
+			records.add("C " + computeMethod);
+		}
+	}
+
+	@BeforeEach
+	void registerMsgTypes()
+	{
+		ArduinoEvent.registerMsgType(BeamBrokenEvent.MSG_PREFIX, BeamBrokenEvent::create);
+		journalFile = tempDir.resolve("Journal.txt").toFile();
+	}
+
+	private static BeamBrokenEvent beamBroken(long seqNum, int pin, long clockEpoch, long timelineTime)
+	{
+		BeamBrokenEvent evt = new BeamBrokenEvent(seqNum, SensorId.getById(pin), timelineTime);
+		evt.setSynchronizedTime(clockEpoch, timelineTime, LocalDateTime.now());
+		return evt;
+	}
+
+	private List<String> replay() throws IOException
+	{
+		RecordingHandler handler = new RecordingHandler();
+		new EventJournal(journalFile).replay(handler);
+		return handler.records;
+	}
+
+	@Test
+	void replaysEventsWithTheirClockEpoch() throws IOException
+	{
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.startNewSession(METHOD);
+			journal.appendEvents(List.of(beamBroken(1, 2, 1234, 500), beamBroken(2, 3, 1234, 2_500)));
+			journal.appendReady();
+		}
+		assertEquals(List.of("C " + METHOD, "E 1234:500 BeamBroken:1,2,500", "E 1234:2500 BeamBroken:2,3,2500", "R"),
+			replay());
+	}
+
+	@Test
+	void replaysEventsJournaledWithoutAnEpoch() throws IOException
+	{
+		Files.writeString(journalFile.toPath(), "E 1760000000000 500 BeamBroken:1,2,500\n", StandardCharsets.UTF_8);
+		assertEquals(List.of("E %1$d:500 BeamBroken:1,2,500".formatted(ArduinoEvent.NO_CLOCK_EPOCH)), replay());
+	}
+
+	@Test
+	void replaysASequenceGapThatTheSerialParserRejects() throws IOException
+	{
+		SequenceGapEvent gap = new SequenceGapEvent(4, 6);
+		gap.setSynchronizedTime(1234, 2_000, LocalDateTime.now());
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.appendEvents(List.of(gap));
+		}
+		assertEquals(List.of("E 1234:2000 SequenceGap:4,6"), replay());
+		assertNull(ArduinoEvent.parse(gap.formatMsg()));
+	}
+
+	@Test
+	void startsANewSessionAfterASave() throws IOException
+	{
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.startNewSession(METHOD);
+			journal.appendEvents(List.of(beamBroken(1, 2, 1234, 500)));
+			journal.startNewSession(METHOD);
+			journal.appendReady();
+		}
+		assertEquals(List.of("C " + METHOD, "R"), replay());
+	}
+
+	@Test
+	void skipsATornRecord() throws IOException
+	{
+		Files.writeString(journalFile.toPath(), "R 1760000000000\nE 17600000", StandardCharsets.UTF_8);
+		assertEquals(List.of("R"), replay());
+	}
+
+	@Test
+	void replaysNothingWithoutAJournal() throws IOException
+	{
+		assertEquals(List.of(), replay());
+	}
+
+	@Test
+	void holdsTheSavedSessionApartAndStartsAFreshOne() throws IOException
+	{
+		File heldFile;
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.startNewSession(METHOD);
+			journal.appendEvents(List.of(beamBroken(1, 2, 1234, 500)));
+			heldFile = journal.holdForSave("A12-003", METHOD);
+			journal.appendReady();
+		}
+		assertEquals("Journal-A12-003.txt", heldFile.getName());
+		assertTrue(heldFile.isFile());
+		assertEquals(List.of("C " + METHOD, "R"), replay());
+
+		// The session was never saved, so its records come back ahead of the current ones:
+		assertEquals(1, new EventJournal(journalFile).recoverHeldSessions(_ -> false));
+		assertFalse(heldFile.exists());
+		assertEquals(List.of("C " + METHOD, "E 1234:500 BeamBroken:1,2,500", "C " + METHOD, "R"), replay());
+	}
+
+	@Test
+	void deletesTheHeldRecordsOfASavedSession() throws IOException
+	{
+		File heldFile;
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.appendEvents(List.of(beamBroken(1, 2, 1234, 500)));
+			heldFile = journal.holdForSave("A12-003", METHOD);
+		}
+		List<String> sessionLabels = new ArrayList<>();
+		assertEquals(0, new EventJournal(journalFile).recoverHeldSessions(sessionLabel ->
+		{
+			sessionLabels.add(sessionLabel);
+			return true;
+		}));
+		assertEquals(List.of("A12-003"), sessionLabels);
+		assertFalse(heldFile.exists());
+		assertEquals(List.of("C " + METHOD), replay());
+	}
+
+	@Test
+	void keepsButNeverRestoresADiscardedSession() throws IOException
+	{
+		try (EventJournal journal = new EventJournal(journalFile))
+		{
+			journal.open();
+			journal.appendEvents(List.of(beamBroken(1, 2, 1234, 500)));
+			File heldFile = journal.holdForSave("A12-003", METHOD);
+			journal.discardHeld(heldFile);
+			assertFalse(heldFile.exists());
+		}
+		assertEquals(0, new EventJournal(journalFile).recoverHeldSessions(_ -> false));
+		assertTrue(tempDir.resolve("Journal-A12-003.txt.discarded").toFile().isFile());
+	}
+}
@@ -0,0 +1,152 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+
+class SessionRecordsTest
+{
+	@TempDir
+	Path tempDir;
+
+	// Flattens every callback to a string, so that a whole session compares at once
+	private static final class RecordingHandler implements SessionRecords.Handler
+	{
+		private final List<String> records = new ArrayList<>();
+
+		@Override
+		public void onSession(String division, int teamNum, int sessionNum)
+		{
+			records.add("S %1$s %2$d %3$d".formatted(division, teamNum, sessionNum));
+		}
+
+		@Override
+		public void onBeamBroken(long seqNum, String sensorName, int sensorPin, long arduinoTime,
+			long timelineTime, long wallClockEpochMs)
+		{
+			records.add("B %1$d %2$s %3$d %4$d %5$d %6$d".formatted(seqNum, sensorName, sensorPin, arduinoTime,
+				timelineTime, wallClockEpochMs));
+		}
+
+		@Override
+		public void onResult(long elapsedMs, long startSeqNum, long finishSeqNum, long[] splitsMs)
+		{
+			records.add("T %1$d %2$d %3$d %4$s".formatted(elapsedMs, startSeqNum, finishSeqNum,
+				Arrays.toString(splitsMs)));
+		}
+
+		@Override
+		public void onUnmatched(long seqNum, UnmatchedReason reason)
+		{
+			records.add("U %1$d %2$s".formatted(seqNum, reason));
+		}
+	}
+
+	@AfterEach
+	void restoreDefaultCourse()
+	{
+		SensorId.configure(SensorId.DEFAULT_LAYOUT_SPEC);
+	}
+
+	private static long epochMs(BeamBrokenEvent evt)
+	{
+		return evt.getWallClockTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	@Test
+	void roundTripsASession()
+	{
+		SensorId.configure("2:Start, 18:Gate 2, 3:Finish");
+		BeamBrokenEvent start = new BeamBrokenEvent(1, SensorId.getById(2), 1_000);
+		BeamBrokenEvent gate = new BeamBrokenEvent(2, SensorId.getById(18), 2_250);
+		BeamBrokenEvent finish = new BeamBrokenEvent(3, SensorId.getById(3), 4_000);
+		BeamBrokenEvent stray = new BeamBrokenEvent(4, SensorId.getById(3), 5_000);
+		List<LogEntry> entries = List.of(
+			new LogEntry.Event(start),
+			new LogEntry.Event(gate),
+			new LogEntry.Split(start, gate),
+			new LogEntry.Event(finish),
+			new LogEntry.Split(gate, finish),
+			new LogEntry.Result(new TimingResult(List.of(start, gate, finish))),
+			new LogEntry.Event(stray),
+			new LogEntry.Unmatched(stray, UnmatchedReason.FINISH_WITHOUT_START),
+			new LogEntry.Message("Error: something the records file does not keep\n"));
+
+		RecordingHandler handler = new RecordingHandler();
+		int numRecords = SessionRecords.read(SessionRecords.format("B", 7, 3, entries), handler);
+		assertEquals(List.of(
+			"S B 7 3",
+			"B 1 Start 2 1000 1000 " + epochMs(start),
+			"B 2 Gate 2 18 2250 2250 " + epochMs(gate),
+			"B 3 Finish 3 4000 4000 " + epochMs(finish),
+			"T 3000 1 3 [1250, 1750]",
+			"B 4 Finish 3 5000 5000 " + epochMs(stray),
+			"U 4 FINISH_WITHOUT_START"),
+			handler.records);
+		assertEquals(handler.records.size(), numRecords);
+	}
+
+	@Test
+	void roundTripsThroughAFile() throws IOException
+	{
+		BeamBrokenEvent start = new BeamBrokenEvent(1, SensorId.getById(2), 1_000);
+		BeamBrokenEvent finish = new BeamBrokenEvent(2, SensorId.getById(3), 3_500);
+		Path recordsFile = tempDir.resolve("session" + SessionRecords.FILE_EXTENSION);
+		Files.writeString(recordsFile, SessionRecords.format("A", 12, 0,
+			List.of(new LogEntry.Event(start), new LogEntry.Event(finish),
+				new LogEntry.Result(new TimingResult(start, finish)))));
+
+		RecordingHandler handler = new RecordingHandler();
+		SessionRecords.read(recordsFile, handler);
+		assertEquals("S A 12 0", handler.records.getFirst());
+		assertEquals("T 2500 1 2 [2500]", handler.records.getLast());
+	}
+
+	@Test
+	void skipsUnknownAndMalformedRecords()
+	{
+		String records = String.join("\n",
+			"S\tC\t5\t1\t1",
+			"X\tfrom\ta\tnewer\tversion",
+			"T\tnot a number\t1\t2",
+			"T\t1500",
+			"U\t9\tNO_SUCH_REASON",
+			"no tabs at all",
+			"",
+			"T\t1500\t1\t2");
+		RecordingHandler handler = new RecordingHandler();
+		assertEquals(2, SessionRecords.read(records, handler));
+		assertEquals(List.of("S C 5 1", "T 1500 1 2 []"), handler.records);
+	}
+
+	@Test
+	void readsElapsedTimesFromLegacyText() throws IOException
+	{
+		Path textFile = tempDir.resolve("legacy.txt");
+		Files.writeString(textFile, String.join("\n",
+			"  1. (1:00:00 PM) Start  at     1000 ms",
+			"  2. (1:00:05 PM) Finish at     6230 ms",
+			"",
+			"      5.23 seconds (#1 to #2)",
+			"",
+			"     12,50 seconds (#3 to #4)",
+			"Error: Unrecognized message format:  \"1.00 seconds (#5 to #6)\"",
+			""), StandardCharsets.ISO_8859_1);
+
+		RecordingHandler handler = new RecordingHandler();
+		assertEquals(2, SessionRecords.readLegacyText(textFile, "B", 7, 0, handler));
+		assertEquals(List.of("S B 7 0", "T 5230 1 2 []", "T 12500 3 4 []"), handler.records);
+	}
+}
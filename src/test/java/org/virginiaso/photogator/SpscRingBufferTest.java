@@ -0,0 +1,98 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class SpscRingBufferTest
+{
+	@Test
+	void roundsTheCapacityUpToAPowerOfTwo()
+	{
+		assertEquals(1, new SpscRingBuffer<String>(1).capacity());
+		assertEquals(8, new SpscRingBuffer<String>(5).capacity());
+		assertEquals(8, new SpscRingBuffer<String>(8).capacity());
+		assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<String>(0));
+		assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<String>((1 << 30) + 1));
+	}
+
+	@Test
+	void refusesOffersWhenFull()
+	{
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4);
+		for (int i = 0; i < 4; ++i)
+		{
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4));
+		assertEquals(0, buffer.poll());
+		assertTrue(buffer.offer(4));
+	}
+
+	@Test
+	void pollsInOfferOrderAcrossManyWraparounds()
+	{
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4);
+		assertTrue(buffer.isEmpty());
+		assertNull(buffer.poll());
+		for (int round = 0; round < 100; ++round)
+		{
+			int count = 1 + round % 4;
+			for (int i = 0; i < count; ++i)
+			{
+				assertTrue(buffer.offer(round * 10 + i));
+			}
+			assertFalse(buffer.isEmpty());
+			for (int i = 0; i < count; ++i)
+			{
+				assertEquals(round * 10 + i, buffer.poll());
+			}
+			assertTrue(buffer.isEmpty());
+			assertNull(buffer.poll());
+		}
+	}
+
+	@Test
+	void handsElementsBetweenThreadsInOrder() throws InterruptedException
+	{
+		final int count = 100_000;
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(64);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread producer = Thread.ofPlatform()
+			.name("spsc-producer")
+			.uncaughtExceptionHandler((_, ex) -> failure.set(ex))
+			.start(() ->
+			{
+				for (int i = 0; i < count; ++i)
+				{
+					while (!buffer.offer(i))
+					{
+						Thread.yield();
+					}
+				}
+			});
+
+		for (int expected = 0; expected < count;)
+		{
+			Integer element = buffer.poll();
+			if (element == null)
+			{
+				Thread.yield();
+			}
+			else
+			{
+				assertEquals(expected, element.intValue());
+				++expected;
+			}
+		}
+		producer.join();
+		assertNull(failure.get());
+		assertTrue(buffer.isEmpty());
+	}
+}
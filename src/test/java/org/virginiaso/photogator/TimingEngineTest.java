@@ -0,0 +1,264 @@
+package org.virginiaso.photogator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.virginiaso.photogator.TimingListener.UnmatchedReason;
+import org.virginiaso.serialport.ArduinoEvent;
+import org.virginiaso.serialport.HeartBeatEvent;
+
+class TimingEngineTest
+{
+	private static final int START = 2;
+	private static final int FINISH = 3;
+	private static final int GATE_2 = 18;
+	private static final int GATE_3 = 19;
+
+	private final RecordingListener lstnr = new RecordingListener();
+	private long seqNum = 0;
+
+	private static final class RecordingListener implements TimingListener
+	{
+		private final List<TimingResult> results = new ArrayList<>();
+		private final List<Long> splitsMs = new ArrayList<>();
+		private final List<String> unmatched = new ArrayList<>();
+
+		@Override
+		public void onResult(TimingResult result)
+		{
+			results.add(result);
+		}
+
+		@Override
+		public void onSplit(BeamBrokenEvent previousEvt, BeamBrokenEvent evt)
+		{
+			splitsMs.add(evt.getTimelineTime() - previousEvt.getTimelineTime());
+		}
+
+		@Override
+		public void onUnmatched(BeamBrokenEvent evt, UnmatchedReason reason)
+		{
+			unmatched.add("#" + evt.getSeqNum() + " " + reason);
+		}
+
+		List<Long> elapsedMs()
+		{
+			return results.stream().map(TimingResult::elapsedMs).toList();
+		}
+
+		List<Long> startSeqNums()
+		{
+			return results.stream().map(result -> result.startEvent().getSeqNum()).toList();
+		}
+	}
+
+	@AfterEach
+	void restoreDefaultCourse()
+	{
+		SensorId.configure(SensorId.DEFAULT_LAYOUT_SPEC);
+	}
+
+	private BeamBrokenEvent beamBroken(int pin, long arduinoTime)
+	{
+		return new BeamBrokenEvent(++seqNum, SensorId.getById(pin), arduinoTime);
+	}
+
+	private static void feed(TimingEngine engine, BeamBrokenEvent... events)
+	{
+		for (BeamBrokenEvent evt : events)
+		{
+			engine.onBeamBroken(evt);
+		}
+	}
+
+	@Test
+	void consecutivePairTimesTheLatestStartToTheNextFinish()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.CONSECUTIVE_START_END_PAIR, lstnr);
+		feed(engine, beamBroken(START, 1_000), beamBroken(START, 2_000), beamBroken(FINISH, 4_500),
+			beamBroken(FINISH, 5_000));
+		assertEquals(List.of(2_500L), lstnr.elapsedMs());
+		assertEquals(List.of(2L), lstnr.startSeqNums());
+	}
+
+	@Test
+	void firstStartAfterReadyKeepsTheFirstStart()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIRST_START_AFTER_READY, lstnr);
+		feed(engine, beamBroken(START, 1_000), beamBroken(START, 2_000), beamBroken(FINISH, 4_500));
+		engine.ready();
+		feed(engine, beamBroken(START, 5_000));
+		engine.ready();
+		feed(engine, beamBroken(START, 6_000), beamBroken(FINISH, 7_250));
+		assertEquals(List.of(3_500L, 1_250L), lstnr.elapsedMs());
+		assertEquals(List.of(1L, 5L), lstnr.startSeqNums());
+	}
+
+	@Test
+	void fifoPairsOverlappingRunsInStartOrder()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		feed(engine, beamBroken(START, 0), beamBroken(START, 1_000), beamBroken(START, 1_500),
+			beamBroken(FINISH, 5_000), beamBroken(FINISH, 7_000), beamBroken(FINISH, 7_500));
+		assertEquals(List.of(5_000L, 6_000L, 6_000L), lstnr.elapsedMs());
+		assertEquals(List.of(1L, 2L, 3L), lstnr.startSeqNums());
+		assertTrue(lstnr.unmatched.isEmpty());
+	}
+
+	@Test
+	void fifoReportsFinishWithoutStart()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		feed(engine, beamBroken(START, 0), beamBroken(FINISH, 1_000), beamBroken(FINISH, 2_000));
+		assertEquals(List.of(1_000L), lstnr.elapsedMs());
+		assertEquals(List.of("#3 FINISH_WITHOUT_START"), lstnr.unmatched);
+	}
+
+	@Test
+	void fifoExpiresStartsThatWaitTooLong()
+	{
+		FifoOverlappingRunsStrategy strategy = new FifoOverlappingRunsStrategy(8, 10_000);
+		strategy.onBeamBroken(beamBroken(START, 0), lstnr);
+		strategy.onBeamBroken(beamBroken(START, 5_000), lstnr);
+		strategy.onBeamBroken(beamBroken(FINISH, 12_000), lstnr);
+		assertEquals(List.of("#1 START_TIMED_OUT"), lstnr.unmatched);
+		assertEquals(List.of(7_000L), lstnr.elapsedMs());
+		assertEquals(0, strategy.getOutstandingStartCount());
+	}
+
+	@Test
+	void fifoDisplacesTheOldestStartWhenFull()
+	{
+		FifoOverlappingRunsStrategy strategy = new FifoOverlappingRunsStrategy(2, 60_000);
+		strategy.onBeamBroken(beamBroken(START, 0), lstnr);
+		strategy.onBeamBroken(beamBroken(START, 100), lstnr);
+		strategy.onBeamBroken(beamBroken(START, 200), lstnr);
+		assertEquals(List.of("#1 START_DISPLACED"), lstnr.unmatched);
+		assertEquals(2, strategy.getOutstandingStartCount());
+		strategy.onBeamBroken(beamBroken(FINISH, 1_000), lstnr);
+		assertEquals(List.of(2L), lstnr.startSeqNums());
+	}
+
+	@Test
+	void everyMethodCreditsIntermediateGatesOnANGateCourse()
+	{
+		SensorId.configure("%1$d:Start, %2$d:Gate 2, %3$d:Gate 3, %4$d:Finish".formatted(
+			START, GATE_2, GATE_3, FINISH));
+		for (ElapsedTimeComputeMethod method : ElapsedTimeComputeMethod.values())
+		{
+			RecordingListener methodLstnr = new RecordingListener();
+			TimingEngine engine = new TimingEngine(method, methodLstnr);
+			feed(engine, beamBroken(START, 0), beamBroken(GATE_2, 1_000), beamBroken(GATE_3, 2_500),
+				beamBroken(FINISH, 4_000));
+			assertEquals(List.of(4_000L), methodLstnr.elapsedMs(), method.name());
+			assertEquals(List.of(1_000L, 1_500L, 1_500L), methodLstnr.splitsMs, method.name());
+			assertEquals(4, methodLstnr.results.getFirst().gateEvents().size(), method.name());
+		}
+	}
+
+	@Test
+	void fifoCreditsEachGateToTheOldestRunNotYetPastIt()
+	{
+		SensorId.configure("%1$d:Start, %2$d:Gate 2, %3$d:Gate 3, %4$d:Finish".formatted(
+			START, GATE_2, GATE_3, FINISH));
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		feed(engine, beamBroken(START, 0), beamBroken(START, 500), beamBroken(GATE_2, 1_000),
+			beamBroken(GATE_2, 1_600), beamBroken(GATE_3, 2_000), beamBroken(FINISH, 3_000),
+			beamBroken(FINISH, 3_700));
+		assertEquals(List.of(3_000L, 3_200L), lstnr.elapsedMs());
+		assertEquals(List.of(1L, 2L), lstnr.startSeqNums());
+
+		// The second run missed gate 3, so its finish follows gate 2 directly:
+		assertEquals(List.of(4, 3), lstnr.results.stream().map(result -> result.gateEvents().size()).toList());
+	}
+
+	@Test
+	void fifoReportsASplitGateWithoutAStart()
+	{
+		SensorId.configure("%1$d:Start, %2$d:Gate 2, %3$d:Finish".formatted(START, GATE_2, FINISH));
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		feed(engine, beamBroken(GATE_2, 1_000));
+		assertEquals(List.of("#1 SPLIT_WITHOUT_START"), lstnr.unmatched);
+	}
+
+	@Test
+	void aClockEpochChangeAbandonsPendingStarts()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		BeamBrokenEvent start = beamBroken(START, 90_000);
+		start.setSynchronizedTime(1, 90_000, LocalDateTime.now());
+		BeamBrokenEvent finish = beamBroken(FINISH, 95_000);
+		finish.setSynchronizedTime(2, 95_000, LocalDateTime.now());
+		feed(engine, start, finish);
+		assertTrue(lstnr.results.isEmpty());
+		assertEquals(List.of("#1 CLOCK_RESET", "#2 FINISH_WITHOUT_START"), lstnr.unmatched);
+	}
+
+	@Test
+	void abandonRunsReportsEveryPendingStart()
+	{
+		for (ElapsedTimeComputeMethod method : ElapsedTimeComputeMethod.values())
+		{
+			RecordingListener methodLstnr = new RecordingListener();
+			TimingEngine engine = new TimingEngine(method, methodLstnr);
+			BeamBrokenEvent start = beamBroken(START, 0);
+			feed(engine, start);
+			engine.abandonRuns();
+			feed(engine, beamBroken(FINISH, 1_000));
+			assertTrue(methodLstnr.results.isEmpty(), method.name());
+			assertEquals("#%1$d CLOCK_RESET".formatted(start.getSeqNum()), methodLstnr.unmatched.getFirst(),
+				method.name());
+		}
+	}
+
+	@Test
+	void resetReportsAndForgetsPendingStarts()
+	{
+		for (ElapsedTimeComputeMethod method : ElapsedTimeComputeMethod.values())
+		{
+			RecordingListener methodLstnr = new RecordingListener();
+			TimingEngine engine = new TimingEngine(method, methodLstnr);
+			BeamBrokenEvent start = beamBroken(START, 0);
+			feed(engine, start);
+			engine.reset();
+			feed(engine, beamBroken(FINISH, 1_000));
+			assertTrue(methodLstnr.results.isEmpty(), method.name());
+			assertEquals("#%1$d DISPLAY_CLEARED".formatted(start.getSeqNum()), methodLstnr.unmatched.getFirst(),
+				method.name());
+		}
+	}
+
+	@Test
+	void fifoExpiresAnOrphanedStartOnAHeartBeat()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		BeamBrokenEvent start = beamBroken(START, 1_000);
+		start.setSynchronizedTime(7, 1_000, LocalDateTime.now());
+		feed(engine, start);
+
+		HeartBeatEvent heartBeat = new HeartBeatEvent(1_000 + FifoOverlappingRunsStrategy.DEFAULT_START_TIMEOUT_MS);
+		heartBeat.setSynchronizedTime(7, heartBeat.getArduinoTime(), LocalDateTime.now());
+		engine.advanceTime(heartBeat);
+		assertTrue(lstnr.unmatched.isEmpty());
+
+		heartBeat = new HeartBeatEvent(1_001 + FifoOverlappingRunsStrategy.DEFAULT_START_TIMEOUT_MS);
+		heartBeat.setSynchronizedTime(7, heartBeat.getArduinoTime(), LocalDateTime.now());
+		engine.advanceTime(heartBeat);
+		assertEquals(List.of("#1 START_TIMED_OUT"), lstnr.unmatched);
+	}
+
+	@Test
+	void ignoresAHeartBeatWithoutATime()
+	{
+		TimingEngine engine = new TimingEngine(ElapsedTimeComputeMethod.FIFO_OVERLAPPING_RUNS, lstnr);
+		feed(engine, beamBroken(START, 1_000));
+		engine.advanceTime(new HeartBeatEvent(ArduinoEvent.NO_ARDUINO_TIME));
+		assertTrue(lstnr.unmatched.isEmpty());
+	}
+}
@@ -0,0 +1,77 @@
+package org.virginiaso.serialport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ArduinoClockTest
+{
+	private static final long MILLIS_WRAP = 1L << 32;
+
+	private final ArduinoClock clock = new ArduinoClock();
+
+	private HeartBeatEvent observe(long arduinoTime)
+	{
+		HeartBeatEvent evt = new HeartBeatEvent(arduinoTime);
+		clock.observe(evt);
+		return evt;
+	}
+
+	@Test
+	void extendsTheTimelineAcrossAMillisWraparound()
+	{
+		long epoch = observe(MILLIS_WRAP - 2_000).getClockEpoch();
+		observe(MILLIS_WRAP - 1_000);
+		HeartBeatEvent afterWrap = observe(500);
+		assertEquals(MILLIS_WRAP + 500, afterWrap.getTimelineTime());
+		assertEquals(epoch, afterWrap.getClockEpoch());
+		assertEquals(0, clock.getResetCount());
+	}
+
+	@Test
+	void letsASmallRegressionThroughWithoutRestarting()
+	{
+		long epoch = observe(100_000).getClockEpoch();
+		observe(101_000);
+		HeartBeatEvent late = observe(99_500);
+		assertEquals(99_500, late.getTimelineTime());
+		assertEquals(epoch, late.getClockEpoch());
+		assertEquals(0, clock.getResetCount());
+		assertEquals(1, clock.getRegressionCount());
+		assertEquals(2, clock.getSampleCount());
+
+		// The regression did not move the latest time back:
+		assertEquals(102_000, observe(102_000).getTimelineTime());
+	}
+
+	@Test
+	void letsASmallRegressionAcrossAWraparoundThrough()
+	{
+		observe(MILLIS_WRAP - 1_000);
+		observe(200);
+		HeartBeatEvent late = observe(MILLIS_WRAP - 300);
+		assertEquals(MILLIS_WRAP - 300, late.getTimelineTime());
+		assertEquals(0, clock.getResetCount());
+		assertEquals(1, clock.getRegressionCount());
+	}
+
+	@Test
+	void restartsWithANewEpochOnALargeBackwardJump()
+	{
+		long epoch = observe(100_000).getClockEpoch();
+		HeartBeatEvent afterReset = observe(50);
+		assertEquals(50, afterReset.getTimelineTime());
+		assertNotEquals(epoch, afterReset.getClockEpoch());
+		assertEquals(1, clock.getResetCount());
+		assertEquals(1, clock.getSampleCount());
+	}
+
+	@Test
+	void leavesEventsWithoutATimeUnstamped()
+	{
+		HeartBeatEvent evt = observe(ArduinoEvent.NO_ARDUINO_TIME);
+		assertEquals(ArduinoEvent.NO_CLOCK_EPOCH, evt.getClockEpoch());
+		assertEquals(0, clock.getSampleCount());
+	}
+}
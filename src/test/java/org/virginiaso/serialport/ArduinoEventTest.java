@@ -0,0 +1,107 @@
+package org.virginiaso.serialport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ArduinoEventTest
+{
+	// Test-only message types, sharing a first letter so that they share a dispatch slot
+	private static final class MarkerEvent extends ArduinoEvent
+	{
+		private final String prefix;
+		private final String fields;
+
+		MarkerEvent(String msgPrefix, CharSequence msg, int fieldsStart)
+		{
+			prefix = msgPrefix;
+			fields = msg.subSequence(fieldsStart, msg.length()).toString();
+		}
+
+		@Override
+		public String format()
+		{
+			return prefix + fields;
+		}
+
+		@Override
+		public String formatMsg()
+		{
+			return prefix + fields;
+		}
+	}
+
+	@BeforeAll
+	static void registerMsgTypes()
+	{
+		ArduinoEvent.registerMsgType(HeartBeatEvent.MSG_PREFIX, HeartBeatEvent::create);
+		ArduinoEvent.registerMsgType(OverflowEvent.MSG_PREFIX, OverflowEvent::create);
+		ArduinoEvent.registerMsgType("Zap", (msg, fieldsStart) -> new MarkerEvent("Zap", msg, fieldsStart));
+		ArduinoEvent.registerMsgType("ZapLong:", (msg, fieldsStart) -> new MarkerEvent("ZapLong:", msg, fieldsStart));
+	}
+
+	@Test
+	void dispatchesByPrefix()
+	{
+		HeartBeatEvent heartBeat = assertInstanceOf(HeartBeatEvent.class, ArduinoEvent.parse("HeartBeat:12345"));
+		assertEquals(12345, heartBeat.getArduinoTime());
+		OverflowEvent overflow = assertInstanceOf(OverflowEvent.class, ArduinoEvent.parse("Overflow:7"));
+		assertEquals(7, overflow.getOverflowCount());
+	}
+
+	@Test
+	void matchesPrefixesIgnoringCase()
+	{
+		assertInstanceOf(HeartBeatEvent.class, ArduinoEvent.parse("heartbeat:1"));
+		assertInstanceOf(HeartBeatEvent.class, ArduinoEvent.parse("HEARTBEAT:1"));
+	}
+
+	@Test
+	void prefersTheLongestMatchingPrefix()
+	{
+		assertEquals("ZapLong:x", ArduinoEvent.parse("ZapLong:x").formatMsg());
+		assertEquals("ZapLon", ArduinoEvent.parse("ZapLon").formatMsg());
+	}
+
+	@Test
+	void acceptsAHeartBeatWithoutATime()
+	{
+		HeartBeatEvent heartBeat = assertInstanceOf(HeartBeatEvent.class, ArduinoEvent.parse("HeartBeat"));
+		assertEquals(ArduinoEvent.NO_ARDUINO_TIME, heartBeat.getArduinoTime());
+		assertEquals("HeartBeat", heartBeat.formatMsg());
+	}
+
+	@Test
+	void rejectsUnknownAndMalformedMessages()
+	{
+		assertNull(ArduinoEvent.parse(""));
+		assertNull(ArduinoEvent.parse("Hello"));
+		assertNull(ArduinoEvent.parse("\u00e9t\u00e9"));
+		assertNull(ArduinoEvent.parse("HeartBeat:"));
+		assertNull(ArduinoEvent.parse("HeartBeat:12x"));
+		assertNull(ArduinoEvent.parse("HeartBeatX"));
+		assertNull(ArduinoEvent.parse("Overflow:-1"));
+		assertNull(ArduinoEvent.parse("Overflow:99999999999999999999"));
+	}
+
+	@Test
+	void formatMsgRoundTrips()
+	{
+		for (String msg : new String[] { "HeartBeat:4294967295", "Overflow:12" })
+		{
+			assertEquals(msg, ArduinoEvent.parse(msg).formatMsg());
+		}
+	}
+
+	@Test
+	void rejectsInvalidPrefixes()
+	{
+		assertThrows(IllegalArgumentException.class, () -> ArduinoEvent.registerMsgType("", HeartBeatEvent::create));
+		assertThrows(IllegalArgumentException.class,
+			() -> ArduinoEvent.registerMsgType("\u00e9", HeartBeatEvent::create));
+	}
+}
@@ -0,0 +1,146 @@
+package org.virginiaso.serialport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FrameDecoderTest
+{
+	private final List<String> frames = new ArrayList<>();
+	private final FrameDecoder decoder = new FrameDecoder(frame -> frames.add(frame.toString()));
+
+	private static byte[] bytes(String text)
+	{
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	@Test
+	void splitsFramesAtNuls()
+	{
+		decoder.decode(bytes("HeartBeat:1\0BeamBroken:1,2,3\0"));
+		assertEquals(List.of("HeartBeat:1", "BeamBroken:1,2,3"), frames);
+		assertEquals(2, decoder.getFrameCount());
+	}
+
+	@Test
+	void ignoresEmptyFrames()
+	{
+		decoder.decode(bytes("\0\0HeartBeat:1\0\0"));
+		assertEquals(List.of("HeartBeat:1"), frames);
+		assertEquals(1, decoder.getFrameCount());
+	}
+
+	@Test
+	void reassemblesFramesSplitAtEveryByte()
+	{
+		byte[] stream = bytes("HeartBeat:123\0BeamBroken:17,2,4567\0Overflow:3\0");
+		List<String> expected = List.of("HeartBeat:123", "BeamBroken:17,2,4567", "Overflow:3");
+		for (int split = 1; split < stream.length; ++split)
+		{
+			frames.clear();
+			decoder.decode(stream, 0, split);
+			decoder.decode(stream, split, stream.length - split);
+			assertEquals(expected, frames, "split at " + split);
+		}
+	}
+
+	@Test
+	void reassemblesAFrameDeliveredOneByteAtATime()
+	{
+		byte[] stream = bytes("BeamBroken:17,2,4567\0");
+		for (int i = 0; i < stream.length; ++i)
+		{
+			decoder.decode(stream, i, 1);
+		}
+		assertEquals(List.of("BeamBroken:17,2,4567"), frames);
+	}
+
+	@Test
+	void deliversAFrameOfExactlyTheMaximumLength()
+	{
+		String longest = "x".repeat(FrameDecoder.MAX_FRAME_LENGTH);
+		decoder.decode(bytes(longest + "\0"));
+		assertEquals(List.of(longest), frames);
+		assertEquals(0, decoder.getOversizeFrameCount());
+	}
+
+	@Test
+	void dropsAnOversizeFrameAndResynchronizes()
+	{
+		decoder.decode(bytes("x".repeat(FrameDecoder.MAX_FRAME_LENGTH + 1) + "\0HeartBeat:1\0"));
+		assertEquals(List.of("HeartBeat:1"), frames);
+		assertEquals(1, decoder.getOversizeFrameCount());
+	}
+
+	@Test
+	void dropsAnOversizeFrameThatArrivesInPieces()
+	{
+		byte[] piece = bytes("y".repeat(100));
+		for (int i = 0; i < 5; ++i)
+		{
+			decoder.decode(piece);
+		}
+		decoder.decode(bytes("\0HeartBeat:2\0"));
+		assertEquals(List.of("HeartBeat:2"), frames);
+		assertEquals(1, decoder.getOversizeFrameCount());
+	}
+
+	@Test
+	void dropsAGarbledFrameAndResynchronizes()
+	{
+		byte[] stream = bytes("Heart\u0001Beat:1\0Beam\u00ffBroken:1,2,3\0HeartBeat:2\0");
+		decoder.decode(stream, 0, 9);
+		decoder.decode(stream, 9, stream.length - 9);
+		assertEquals(List.of("HeartBeat:2"), frames);
+		assertEquals(2, decoder.getGarbledFrameCount());
+		assertEquals(1, decoder.getFrameCount());
+	}
+
+	@Test
+	void survivesAFailingListener()
+	{
+		FrameDecoder failingDecoder = new FrameDecoder(frame ->
+		{
+			if (frame.charAt(0) == 'B')
+			{
+				throw new IllegalStateException("Listener failure");
+			}
+			frames.add(frame.toString());
+		});
+		failingDecoder.decode(bytes("BeamBroken:1,2,3\0HeartBeat:1\0"));
+		assertEquals(List.of("HeartBeat:1"), frames);
+		assertEquals(1, failingDecoder.getListenerFailureCount());
+	}
+
+	@Test
+	void findsANulAtEveryPosition()
+	{
+		for (int length = 1; length <= 3 * Long.BYTES; ++length)
+		{
+			byte[] chunk = new byte[length];
+			Arrays.fill(chunk, (byte) 'a');
+			assertEquals(-1, FrameDecoder.indexOfNul(chunk, 0, length));
+			for (int nul = 0; nul < length; ++nul)
+			{
+				chunk[nul] = 0;
+				assertEquals(nul, FrameDecoder.indexOfNul(chunk, 0, length), "length " + length);
+				assertEquals(-1, FrameDecoder.indexOfNul(chunk, nul + 1, length), "length " + length);
+				chunk[nul] = 'a';
+			}
+		}
+	}
+
+	@Test
+	void treatsHighBytesAsNonZero()
+	{
+		byte[] chunk = new byte[16];
+		Arrays.fill(chunk, (byte) 0x80);
+		chunk[11] = 0;
+		assertEquals(11, FrameDecoder.indexOfNul(chunk, 0, chunk.length));
+	}
+}